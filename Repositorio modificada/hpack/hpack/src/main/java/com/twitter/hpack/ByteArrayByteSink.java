@@ -0,0 +1,100 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * ByteSink sobre un byte[] reutilizable. Crece si hace falta, pero la idea
+ * es reservar el tamaño de antemano con reset(int) y no crecer nunca.
+ */
+public class ByteArrayByteSink implements ByteSink {
+    private byte[] buffer;
+    private int position;
+
+    public ByteArrayByteSink() {
+        this(256);
+    }
+
+    public ByteArrayByteSink(int initialCapacity) {
+        this.buffer = new byte[initialCapacity];
+    }
+
+    /**
+     * Vacía el sink asegurando espacio para al menos capacity bytes
+     */
+    public void reset(int capacity) {
+        if (buffer.length < capacity) {
+            buffer = new byte[capacity];
+        }
+        position = 0;
+    }
+
+    public void reset() {
+        position = 0;
+    }
+
+    /**
+     * Array interno: los bytes válidos son [0, size())
+     */
+    public byte[] array() {
+        return buffer;
+    }
+
+    public int size() {
+        return position;
+    }
+
+    /**
+     * Reserva length bytes contiguos y devuelve su offset en array(), para
+     * que el llamador escriba directamente sobre el array.
+     */
+    public int reserve(int length) {
+        if (buffer.length - position < length) {
+            grow(length);
+        }
+        int offset = position;
+        position += length;
+        return offset;
+    }
+
+    /**
+     * Descarta lo escrito a partir de size (por ejemplo, la parte no usada
+     * de un reserve)
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > position) {
+            throw new IndexOutOfBoundsException("size: " + size);
+        }
+        position = size;
+    }
+
+    @Override
+    public void write(int b) {
+        if (position == buffer.length) {
+            grow(1);
+        }
+        buffer[position++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b) {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        if (buffer.length - position < len) {
+            grow(len);
+        }
+        System.arraycopy(b, off, buffer, position, len);
+        position += len;
+    }
+
+    @Override
+    public void flush() {
+        // Nada que vaciar: los bytes ya están en el array
+    }
+
+    private void grow(int minGrowth) {
+        byte[] tmp = new byte[Math.max(buffer.length << 1, position + minGrowth)];
+        System.arraycopy(buffer, 0, tmp, 0, position);
+        buffer = tmp;
+    }
+}
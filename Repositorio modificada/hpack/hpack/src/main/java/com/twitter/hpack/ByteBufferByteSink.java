@@ -0,0 +1,51 @@
+package main.java.com.twitter.hpack;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ByteSink que escribe directamente en un ByteBuffer (heap o directo).
+ * Si no hay espacio se lanza BufferOverflowException: el tamaño se puede
+ * reservar de antemano con Encoder.getMaxEncodedLength.
+ */
+public class ByteBufferByteSink implements ByteSink {
+    private ByteBuffer buffer;
+
+    public ByteBufferByteSink() {
+        this(ByteBuffer.allocate(0));
+    }
+
+    public ByteBufferByteSink(ByteBuffer buffer) {
+        this.buffer = HpackUtil.requireNonNull(buffer);
+    }
+
+    /**
+     * Reutiliza este sink sobre otro buffer
+     */
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = HpackUtil.requireNonNull(buffer);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b) {
+        buffer.put(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer.put(b, off, len);
+    }
+
+    @Override
+    public void flush() {
+        // Nada que vaciar: los bytes ya están en el buffer
+    }
+}
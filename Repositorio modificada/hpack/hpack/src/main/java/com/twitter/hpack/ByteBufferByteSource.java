@@ -0,0 +1,88 @@
+package main.java.com.twitter.hpack;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ByteSource que lee directamente de un ByteBuffer (heap o directo) sin
+ * copiar el frame. Los bytes no consumidos quedan a partir de la posicion
+ * actual del buffer.
+ */
+public class ByteBufferByteSource implements ByteSource {
+    private ByteBuffer buffer;
+
+    public ByteBufferByteSource() {
+        this(ByteBuffer.allocate(0));
+    }
+
+    public ByteBufferByteSource(ByteBuffer buffer) {
+        this.buffer = HpackUtil.requireNonNull(buffer);
+    }
+
+    /**
+     * Reutiliza esta fuente sobre otro buffer
+     */
+    public void setBuffer(ByteBuffer buffer) {
+        this.buffer = HpackUtil.requireNonNull(buffer);
+    }
+
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    @Override
+    public int read() {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b) {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        int remaining = buffer.remaining();
+        if (remaining == 0) {
+            return -1;
+        }
+        int n = Math.min(remaining, len);
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public void mark(int readlimit) {
+        buffer.mark();
+    }
+
+    @Override
+    public void reset() {
+        buffer.reset();
+    }
+
+    @Override
+    public long skip(long n) {
+        if (n <= 0) {
+            return 0;
+        }
+        int skipped = (int) Math.min(n, buffer.remaining());
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+}
@@ -5,6 +5,7 @@ import java.io.IOException;
 public interface ByteSource {
     int read() throws IOException;
     int read(byte[] b) throws IOException;
+    int read(byte[] b, int off, int len) throws IOException;
     int available() throws IOException;
     void mark(int readlimit);
     void reset() throws IOException;
@@ -2,8 +2,14 @@ package main.java.com.twitter.hpack;
 
 import static com.twitter.hpack.HeaderField.HEADER_ENTRY_OVERHEAD;
 
+import java.util.Arrays;
+
 final class CircularQueue {
     private HeaderField[] headerFields;
+    // Suma prefija: ends[i] es el total de bytes insertados hasta la
+    // entrada del slot i inclusive
+    private long[] ends;
+    private long inserted;
     private int head;
     private int tail;
     private int size;
@@ -11,6 +17,7 @@ final class CircularQueue {
     
     CircularQueue() {
         headerFields = new HeaderField[0];
+        ends = new long[0];
         head = tail = size = length = 0;
     }
     
@@ -34,34 +41,6 @@ final class CircularQueue {
         }
     }
     
-    int findIndexByName(byte[] name) {
-        if (length == 0 || name == null) {
-            return -1;
-        }
-        
-        for (int i = 1; i <= length; i++) {
-            HeaderField entry = getEntry(i);
-            if (HpackUtil.equals(name, entry.name)) {
-                return i;
-            }
-        }
-        return -1;
-    }
-    
-    int findIndexByNameAndValue(byte[] name, byte[] value) {
-        if (length == 0 || name == null || value == null) {
-            return -1;
-        }
-        
-        for (int i = 1; i <= length; i++) {
-            HeaderField entry = getEntry(i);
-            if (HpackUtil.equals(name, entry.name) && HpackUtil.equals(value, entry.value)) {
-                return i;
-            }
-        }
-        return -1;
-    }
-    
     void add(HeaderField header) {
         if (headerFields.length == 0) {
             // Inicializar con capacidad mínima
@@ -74,6 +53,8 @@ final class CircularQueue {
         }
         
         headerFields[head] = header;
+        inserted += header.size();
+        ends[head] = inserted;
         head = (head + 1) % headerFields.length;
         size += header.size();
         length++;
@@ -103,6 +84,60 @@ final class CircularQueue {
         return removed;
     }
     
+    /**
+     * Menor cantidad de entradas, desde la más antigua, cuyos tamaños suman
+     * al menos bytes (length si no alcanzan). Búsqueda binaria sobre las
+     * sumas prefijas: O(log n).
+     */
+    int countToFree(int bytes) {
+        if (bytes <= 0) {
+            return 0;
+        }
+        if (bytes >= size) {
+            return length;
+        }
+        long target = inserted - size + bytes;
+        int low = 0;
+        int high = length - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[(tail + mid) % headerFields.length] >= target) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low + 1;
+    }
+    
+    /**
+     * Quita las count entradas más antiguas de una vez: mueve tail y
+     * descuenta su tamaño con las sumas prefijas. Devuelve los bytes
+     * liberados.
+     */
+    int removeOldest(int count) {
+        if (count <= 0) {
+            return 0;
+        }
+        if (count > length) {
+            throw new IndexOutOfBoundsException("Count: " + count + ", Length: " + length);
+        }
+        int last = (tail + count - 1) % headerFields.length;
+        int freed = (int) (ends[last] - (inserted - size));
+        
+        int end = tail + count;
+        if (end <= headerFields.length) {
+            Arrays.fill(headerFields, tail, end, null);
+        } else {
+            Arrays.fill(headerFields, tail, headerFields.length, null);
+            Arrays.fill(headerFields, 0, end - headerFields.length, null);
+        }
+        tail = end % headerFields.length;
+        length -= count;
+        size -= freed;
+        return freed;
+    }
+    
     void clear() {
         for (int i = 0; i < headerFields.length; i++) {
             headerFields[i] = null;
@@ -123,15 +158,21 @@ final class CircularQueue {
         }
         
         HeaderField[] tmp = new HeaderField[newCapacity];
+        long[] tmpEnds = new long[newCapacity];
         int len = Math.min(length, newCapacity);
         
         // Copiar elementos preservando el orden
         for (int i = 0; i < len; i++) {
             int sourceIndex = (tail + i) % headerFields.length;
             tmp[i] = headerFields[sourceIndex];
+            tmpEnds[i] = ends[sourceIndex];
         }
         
         this.headerFields = tmp;
+        this.ends = tmpEnds;
+        if (len > 0) {
+            this.inserted = tmpEnds[len - 1];
+        }
         this.tail = 0;
         this.head = len % newCapacity;
         this.length = len;
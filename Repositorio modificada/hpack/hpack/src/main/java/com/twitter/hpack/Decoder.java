@@ -2,18 +2,18 @@ package main.java.com.twitter.hpack;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 public final class Decoder {
     private final StateMachineDecoder stateMachine;
+    private final DynamicHeaderTable dynamicTable;
+    private final int initialHeaderTableSize;
+    private final ByteBufferByteSource byteBufferSource = new ByteBufferByteSource();
     
     public Decoder(int maxHeaderSize, int maxHeaderTableSize) {
-        StaticHeaderTable staticTable = new StaticTable();
-        DynamicHeaderTable dynamicTable = new DynamicTable(maxHeaderTableSize);
-        HeaderTableManager tableManager = new HeaderTableManager(staticTable, dynamicTable);
-        HuffmanStringProcessor stringProcessor = new HuffmanStringProcessor(new StandardHuffmanDecoder(HpackUtil.HUFFMAN_CODES, HpackUtil.HUFFMAN_CODE_LENGTHS));
-        HeaderValidator validator = new HeaderValidator(maxHeaderSize);
-        
-        this.stateMachine = new StateMachineDecoder(tableManager, stringProcessor, validator);
+        // La tabla estática y la de Huffman se comparten: por conexión solo
+        // queda la tabla dinámica y el estado de decodificación
+        this(StaticTable.INSTANCE, new DynamicTable(maxHeaderTableSize), Huffman.DECODER, maxHeaderSize);
     }
     
     public Decoder(StaticHeaderTable staticTable, 
@@ -25,6 +25,25 @@ public final class Decoder {
         HeaderValidator validator = new HeaderValidator(maxHeaderSize);
         
         this.stateMachine = new StateMachineDecoder(tableManager, stringProcessor, validator);
+        this.dynamicTable = dynamicTable;
+        this.initialHeaderTableSize = dynamicTable.capacity();
+    }
+    
+    /**
+     * Deja el decoder como recién creado para reutilizarlo en otra conexión:
+     * descarta el bloque en curso, vacía la tabla dinámica, restaura su
+     * capacidad inicial y suelta los buffers de trabajo.
+     */
+    public void reset() {
+        stateMachine.reset();
+        stateMachine.releaseBuffers();
+        dynamicTable.clear();
+        try {
+            dynamicTable.setCapacity(initialHeaderTableSize);
+        } catch (IOException e) {
+            // La capacidad inicial ya fue aceptada por la tabla
+            throw new IllegalStateException(e);
+        }
     }
     
     public void decode(InputStream in, HeaderListener headerListener) throws IOException {
@@ -36,6 +55,70 @@ public final class Decoder {
         stateMachine.decode(in, headerListener);
     }
     
+    /**
+     * Decodifica directamente desde un ByteBuffer sin copiar el frame.
+     * Si el bloque queda cortado (CONTINUATION), la posicion del buffer queda
+     * en el primer byte no consumido: el llamador debe agregar el siguiente
+     * fragmento a continuacion (por ejemplo con compact()) y volver a llamar.
+     */
+    public void decode(ByteBuffer in, HeaderListener headerListener) throws IOException {
+        byteBufferSource.setBuffer(in);
+        stateMachine.decode(byteBufferSource, headerListener);
+    }
+    
+    /**
+     * Variantes que entregan vistas sobre buffers del decodificador en lugar
+     * de arrays nuevos; ver HeaderSliceListener.
+     */
+    public void decode(InputStream in, HeaderSliceListener headerListener) throws IOException {
+        stateMachine.decode(new InputStreamByteSource(in), headerListener);
+    }
+    
+    public void decode(ByteSource in, HeaderSliceListener headerListener) throws IOException {
+        stateMachine.decode(in, headerListener);
+    }
+    
+    public void decode(ByteBuffer in, HeaderSliceListener headerListener) throws IOException {
+        byteBufferSource.setBuffer(in);
+        stateMachine.decode(byteBufferSource, headerListener);
+    }
+    
+    /**
+     * Variantes que entregan los valores literales en trozos a medida que
+     * se decodifican; ver HeaderStreamListener.
+     */
+    public void decode(InputStream in, HeaderStreamListener headerListener) throws IOException {
+        stateMachine.decode(new InputStreamByteSource(in), headerListener);
+    }
+    
+    public void decode(ByteSource in, HeaderStreamListener headerListener) throws IOException {
+        stateMachine.decode(in, headerListener);
+    }
+    
+    public void decode(ByteBuffer in, HeaderStreamListener headerListener) throws IOException {
+        byteBufferSource.setBuffer(in);
+        stateMachine.decode(byteBufferSource, headerListener);
+    }
+    
+    /**
+     * Variantes que no decodifican los valores Huffman hasta que se leen;
+     * ver LazyHeaderValue. Tienen otro nombre porque LazyHeaderListener y
+     * HeaderListener reciben tres argumentos: con el mismo nombre una
+     * lambda sería ambigua.
+     */
+    public void decodeLazy(InputStream in, LazyHeaderListener headerListener) throws IOException {
+        stateMachine.decodeLazy(new InputStreamByteSource(in), headerListener);
+    }
+    
+    public void decodeLazy(ByteSource in, LazyHeaderListener headerListener) throws IOException {
+        stateMachine.decodeLazy(in, headerListener);
+    }
+    
+    public void decodeLazy(ByteBuffer in, LazyHeaderListener headerListener) throws IOException {
+        byteBufferSource.setBuffer(in);
+        stateMachine.decodeLazy(byteBufferSource, headerListener);
+    }
+    
     public boolean endHeaderBlock() {
         return stateMachine.endHeaderBlock();
     }
@@ -0,0 +1,18 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Política de admisión por defecto: se indexa todo lo que se puede, como
+ * sugiere el RFC 7541
+ */
+public class DefaultIndexingPolicy implements IndexingPolicy {
+    
+    @Override
+    public boolean shouldIndex(byte[] name, byte[] value) {
+        return true;
+    }
+    
+    @Override
+    public String getPolicyName() {
+        return "ALWAYS";
+    }
+}
@@ -7,15 +7,30 @@ public class DynamicTable implements DynamicHeaderTable {
     private final CapacityManager capacityManager;
     private EvictionPolicy evictionPolicy;
     
+    // Indices hash por nombre y por nombre+valor. Guardan la secuencia de
+    // insercion (1 = primera) para no depender de la posicion en la cola.
+    private final HeaderFieldIndex nameIndex = new HeaderFieldIndex(false);
+    private final HeaderFieldIndex nameValueIndex = new HeaderFieldIndex(true);
+    private final HeaderFieldIndex.Entries entries = new HeaderFieldIndex.Entries() {
+        @Override
+        public HeaderField get(int sequence) {
+            return circularQueue.getEntry(toIndex(sequence));
+        }
+    };
+    private int insertCount;
+    
     public DynamicTable(int initialCapacity) {
         this(initialCapacity, new DefaultEvictionPolicy());
     }
     
     public DynamicTable(int initialCapacity, EvictionPolicy evictionPolicy) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+        }
         this.circularQueue = new CircularQueue();
         this.capacityManager = new CapacityManager(initialCapacity);
         this.evictionPolicy = evictionPolicy;
-        setCapacity(initialCapacity);
+        applyCapacity(initialCapacity);
     }
     
     @Override
@@ -43,12 +58,20 @@ public class DynamicTable implements DynamicHeaderTable {
     
     @Override
     public int getIndex(byte[] name) {
-        return circularQueue.findIndexByName(name);
+        if (name == null || length() == 0) {
+            return -1;
+        }
+        int sequence = nameIndex.find(name, null, entries);
+        return sequence == 0 ? -1 : toIndex(sequence);
     }
     
     @Override
     public int getIndex(byte[] name, byte[] value) {
-        return circularQueue.findIndexByNameAndValue(name, value);
+        if (name == null || value == null || length() == 0) {
+            return -1;
+        }
+        int sequence = nameValueIndex.find(name, value, entries);
+        return sequence == 0 ? -1 : toIndex(sequence);
     }
     
     @Override
@@ -59,23 +82,26 @@ public class DynamicTable implements DynamicHeaderTable {
             return;
         }
         
-        // Usar la política de evicción para determinar cuántas entradas evictar
-        while (evictionPolicy.shouldEvict(size(), headerSize, capacityManager.getCapacity())) {
-            int entriesToEvict = evictionPolicy.calculateEntriesToEvict(size(), headerSize, capacityManager.getCapacity());
-            for (int i = 0; i < entriesToEvict && size() > 0; i++) {
-                remove();
-            }
-        }
+        evict(headerSize);
         
+        if (insertCount == Integer.MAX_VALUE) {
+            renumber();
+        }
         circularQueue.add(header);
         capacityManager.updateSize(headerSize);
+        int sequence = ++insertCount;
+        nameIndex.put(header, sequence, entries);
+        nameValueIndex.put(header, sequence, entries);
     }
     
     @Override
     public HeaderField remove() {
+        int sequence = toSequence(length());
         HeaderField removed = circularQueue.remove();
         if (removed != null) {
             capacityManager.updateSize(-removed.size());
+            nameIndex.remove(removed, sequence);
+            nameValueIndex.remove(removed, sequence);
         }
         return removed;
     }
@@ -84,22 +110,85 @@ public class DynamicTable implements DynamicHeaderTable {
     public void clear() {
         circularQueue.clear();
         capacityManager.resetSize();
+        nameIndex.clear();
+        nameValueIndex.clear();
+        insertCount = 0;
     }
     
     @Override
-    public void setCapacity(int capacity) {
+    public void setCapacity(int capacity) throws IOException {
         if (capacity < 0) {
             throw new IOException("invalid max dynamic table size");
         }
-        
+        applyCapacity(capacity);
+    }
+    
+    private void applyCapacity(int capacity) {
         capacityManager.setCapacity(capacity);
         
         // Evictar entradas si es necesario al reducir capacidad
-        while (size() > capacity) {
-            remove();
-        }
+        evict(0);
         
-        circularQueue.resize(capacityManager.calculateMaxEntries());
+        int maxEntries = capacityManager.calculateMaxEntries();
+        circularQueue.resize(maxEntries);
+        nameIndex.trimTo(maxEntries);
+        nameValueIndex.trimTo(maxEntries);
+    }
+    
+    /**
+     * Desaloja, todas de una vez, las entradas más antiguas justas para que
+     * entren headerSize bytes. El RFC 7541 (4.4) fija cuáles y cuántas, así
+     * que no se consulta a la política de evicción.
+     */
+    void evict(int headerSize) {
+        int excess = size() + headerSize - capacityManager.getCapacity();
+        if (excess > 0) {
+            removeOldest(circularQueue.countToFree(excess));
+        }
+    }
+    
+    /**
+     * Quita las count entradas más antiguas moviendo la cola una sola vez.
+     * Los índices hash se actualizan entrada por entrada, salvo cuando se
+     * vacía la tabla.
+     */
+    private void removeOldest(int count) {
+        int length = length();
+        if (count == length) {
+            clear();
+            return;
+        }
+        for (int index = length; index > length - count; index--) {
+            HeaderField removed = circularQueue.getEntry(index);
+            int sequence = toSequence(index);
+            nameIndex.remove(removed, sequence);
+            nameValueIndex.remove(removed, sequence);
+        }
+        capacityManager.updateSize(-circularQueue.removeOldest(count));
+    }
+    
+    private int toIndex(int sequence) {
+        return insertCount - sequence + 1;
+    }
+    
+    private int toSequence(int index) {
+        return insertCount - index + 1;
+    }
+    
+    /**
+     * Reasigna secuencias desde 1 antes de que insertCount desborde
+     */
+    private void renumber() {
+        nameIndex.clear();
+        nameValueIndex.clear();
+        int length = length();
+        insertCount = length;
+        for (int index = length; index > 0; index--) {
+            HeaderField header = circularQueue.getEntry(index);
+            int sequence = toSequence(index);
+            nameIndex.put(header, sequence, entries);
+            nameValueIndex.put(header, sequence, entries);
+        }
     }
     
     /**
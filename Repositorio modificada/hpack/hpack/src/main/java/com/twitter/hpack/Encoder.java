@@ -2,13 +2,16 @@ package main.java.com.twitter.hpack;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.util.List;
 
 public final class Encoder {
     private final HeaderEncodingStrategy encodingStrategy;
     private final DynamicTableManager tableManager;
     private final NumericEncoder numericEncoder;
     private final StringEncoder stringEncoder;
+    private final ByteBufferByteSink byteBufferSink = new ByteBufferByteSink();
+    private final ByteArrayByteSink blockSink = new ByteArrayByteSink();
     
     private final boolean useIndexing;
     private final boolean forceHuffmanOn;
@@ -19,6 +22,33 @@ public final class Encoder {
     }
     
     public Encoder(int maxHeaderTableSize, boolean useIndexing, boolean forceHuffmanOn, boolean forceHuffmanOff) {
+        this(maxHeaderTableSize, useIndexing, forceHuffmanOn, forceHuffmanOff, null);
+    }
+    
+    /**
+     * literalCache guarda los bytes ya codificados de los headers literales
+     * que no se indexan (sensibles, o todos si useIndexing es false), para
+     * que repetirlos sea una copia. Puede ser propia de este Encoder o una
+     * copia de solo lectura compartida (LiteralHeaderCache.readOnlyCopy())
+     * armada con la misma configuración de Huffman.
+     */
+    public Encoder(int maxHeaderTableSize, boolean useIndexing, boolean forceHuffmanOn, boolean forceHuffmanOff,
+                   LiteralHeaderCache literalCache) {
+        this(maxHeaderTableSize, useIndexing, forceHuffmanOn, forceHuffmanOff, literalCache,
+             new DefaultIndexingPolicy());
+    }
+    
+    /**
+     * indexingPolicy decide qué literales entran en la tabla dinámica. Con
+     * NameIndexingPolicy o FrequencyIndexingPolicy los valores que no se
+     * repiten (x-request-id, cookies nuevas, ...) se envían sin indexar y no
+     * desalojan a los reutilizables.
+     */
+    public Encoder(int maxHeaderTableSize, boolean useIndexing, boolean forceHuffmanOn, boolean forceHuffmanOff,
+                   LiteralHeaderCache literalCache, IndexingPolicy indexingPolicy) {
+        if (literalCache != null) {
+            literalCache.bind(forceHuffmanOn, forceHuffmanOff);
+        }
         this.useIndexing = useIndexing;
         this.forceHuffmanOn = forceHuffmanOn;
         this.forceHuffmanOff = forceHuffmanOff;
@@ -26,7 +56,8 @@ public final class Encoder {
         this.tableManager = new DynamicTableManager(maxHeaderTableSize);
         this.numericEncoder = new NumericEncoder();
         this.stringEncoder = new StringEncoder(forceHuffmanOn, forceHuffmanOff);
-        this.encodingStrategy = new HeaderEncodingStrategy(tableManager, numericEncoder, stringEncoder, useIndexing);
+        this.encodingStrategy = new HeaderEncodingStrategy(tableManager, numericEncoder, stringEncoder, useIndexing,
+            StaticTable.INSTANCE, literalCache, indexingPolicy);
     }
     
     public void encodeHeader(OutputStream out, byte[] name, byte[] value, boolean sensitive) throws IOException {
@@ -38,6 +69,100 @@ public final class Encoder {
         encodingStrategy.encodeHeader(out, name, value, sensitive);
     }
     
+    /**
+     * Codifica directamente en un ByteBuffer (heap o directo) a partir de su
+     * posición. Lanza BufferOverflowException si no hay espacio; reservar
+     * getMaxEncodedLength(name, value) bytes lo evita.
+     */
+    public void encodeHeader(ByteBuffer out, byte[] name, byte[] value, boolean sensitive) throws IOException {
+        byteBufferSink.setBuffer(out);
+        encodingStrategy.encodeHeader(byteBufferSink, name, value, sensitive);
+    }
+    
+    /**
+     * Variantes para proxies que reenvían lo que decodificaron en modo
+     * perezoso: los valores literales se copian sin pasar por Huffman.
+     */
+    public void encodeHeader(OutputStream out, byte[] name, LazyHeaderValue value, boolean sensitive) throws IOException {
+        encodingStrategy.encodeHeader(new OutputStreamByteSink(out), name, value, sensitive);
+    }
+    
+    public void encodeHeader(ByteSink out, byte[] name, LazyHeaderValue value, boolean sensitive) throws IOException {
+        encodingStrategy.encodeHeader(out, name, value, sensitive);
+    }
+    
+    public void encodeHeader(ByteBuffer out, byte[] name, LazyHeaderValue value, boolean sensitive) throws IOException {
+        byteBufferSink.setBuffer(out);
+        encodingStrategy.encodeHeader(byteBufferSink, name, value, sensitive);
+    }
+    
+    public int getMaxEncodedLength(byte[] name, LazyHeaderValue value) {
+        return encodingStrategy.getMaxEncodedLength(name, value);
+    }
+    
+    /**
+     * Cota superior barata (sin recorrer los bytes) del tamaño codificado
+     * de un header, para dimensionar o reutilizar buffers de salida.
+     */
+    public int getMaxEncodedLength(byte[] name, byte[] value) {
+        return encodingStrategy.getMaxEncodedLength(name, value);
+    }
+    
+    /**
+     * Codifica un bloque de headers en una sola pasada. El bloque se arma en
+     * un buffer propio dimensionado con getMaxEncodedLength(headers) y se
+     * escribe en out con una única llamada.
+     */
+    public void encodeHeaders(OutputStream out, List<EncoderHeader> headers) throws IOException {
+        blockSink.reset(encodingStrategy.getMaxEncodedLength(headers));
+        encodingStrategy.encodeHeaders(blockSink, headers);
+        out.write(blockSink.array(), 0, blockSink.size());
+    }
+    
+    public void encodeHeaders(ByteBuffer out, List<EncoderHeader> headers) throws IOException {
+        byteBufferSink.setBuffer(out);
+        encodingStrategy.encodeHeaders(byteBufferSink, headers);
+    }
+    
+    public void encodeHeaders(ByteSink out, List<EncoderHeader> headers) throws IOException {
+        encodingStrategy.encodeHeaders(out, headers);
+    }
+    
+    /**
+     * Precompila una lista fija de headers (por ejemplo los comunes a
+     * todas las respuestas) para emitirla con encodeHeaders. El template
+     * solo sirve para este Encoder.
+     */
+    public HeaderBlockTemplate compile(List<EncoderHeader> headers) throws IOException {
+        return encodingStrategy.compile(headers);
+    }
+    
+    public void encodeHeaders(OutputStream out, HeaderBlockTemplate template) throws IOException {
+        blockSink.reset(encodingStrategy.getMaxEncodedLength(template));
+        encodingStrategy.encodeHeaders(blockSink, template);
+        out.write(blockSink.array(), 0, blockSink.size());
+    }
+    
+    public void encodeHeaders(ByteBuffer out, HeaderBlockTemplate template) throws IOException {
+        byteBufferSink.setBuffer(out);
+        encodingStrategy.encodeHeaders(byteBufferSink, template);
+    }
+    
+    public void encodeHeaders(ByteSink out, HeaderBlockTemplate template) throws IOException {
+        encodingStrategy.encodeHeaders(out, template);
+    }
+    
+    public int getMaxEncodedLength(HeaderBlockTemplate template) {
+        return encodingStrategy.getMaxEncodedLength(template);
+    }
+    
+    /**
+     * Cota superior del tamaño codificado de un bloque completo
+     */
+    public int getMaxEncodedLength(List<EncoderHeader> headers) {
+        return encodingStrategy.getMaxEncodedLength(headers);
+    }
+    
     public void setMaxHeaderTableSize(OutputStream out, int maxHeaderTableSize) throws IOException {
         tableManager.setCapacity(maxHeaderTableSize);
         numericEncoder.encodeInteger(out, 0x20, 5, maxHeaderTableSize);
@@ -0,0 +1,38 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Header a codificar en bloque: nombre, valor y si es sensible
+ * (se codifica como never indexed).
+ */
+public final class EncoderHeader {
+    private final byte[] name;
+    private final byte[] value;
+    private final boolean sensitive;
+
+    public EncoderHeader(byte[] name, byte[] value, boolean sensitive) {
+        this.name = HpackUtil.requireNonNull(name);
+        this.value = HpackUtil.requireNonNull(value);
+        this.sensitive = sensitive;
+    }
+
+    public EncoderHeader(String name, String value, boolean sensitive) {
+        this(name.getBytes(HpackUtil.ISO_8859_1), value.getBytes(HpackUtil.ISO_8859_1), sensitive);
+    }
+
+    public byte[] getName() {
+        return name;
+    }
+
+    public byte[] getValue() {
+        return value;
+    }
+
+    public boolean isSensitive() {
+        return sensitive;
+    }
+
+    @Override
+    public String toString() {
+        return new String(name) + ": " + new String(value) + (sensitive ? " (sensitive)" : "");
+    }
+}
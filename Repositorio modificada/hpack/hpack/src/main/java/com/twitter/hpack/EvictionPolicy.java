@@ -1,7 +1,12 @@
 package main.java.com.twitter.hpack;
 
 /**
- * Interface para políticas de evicción de la tabla dinámica
+ * Interface para políticas de evicción de la tabla dinámica.
+ *
+ * El RFC 7541 (sección 4.4) obliga a desalojar desde la entrada más
+ * antigua y solo hasta que la nueva entre: encoder y decoder tienen que
+ * llegar a la misma tabla. Por eso DynamicTable desaloja siempre ese mínimo
+ * sin consultar a la política.
  */
 public interface EvictionPolicy {
     /**
@@ -18,4 +23,4 @@ public interface EvictionPolicy {
      * Obtiene el nombre de la política
      */
     String getPolicyName();
-}
\ No newline at end of file
+}
@@ -0,0 +1,95 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Política de admisión por frecuencia, al estilo de TinyLFU: un count-min
+ * sketch de contadores de 4 bits estima cuántas veces se vio cada
+ * (nombre, valor) y solo se indexan los que llegan al umbral. Los valores
+ * que no se repiten (ids, fechas, longitudes) no desalojan a los que sí.
+ *
+ * Los contadores se dividen a la mitad cada cierta cantidad de registros,
+ * así la estimación sigue a los cambios de tráfico. Como el Encoder, no es
+ * thread-safe.
+ */
+public class FrequencyIndexingPolicy implements IndexingPolicy {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+    
+    private final byte[] counters;
+    private final int mask;
+    private final int threshold;
+    private final int sampleSize;
+    private int additions;
+    
+    public FrequencyIndexingPolicy() {
+        this(1024, 2);
+    }
+    
+    /**
+     * @param expectedHeaders cantidad de (nombre, valor) distintos a seguir
+     * @param threshold       veces que hay que ver un header para indexarlo
+     */
+    public FrequencyIndexingPolicy(int expectedHeaders, int threshold) {
+        if (expectedHeaders <= 0) {
+            throw new IllegalArgumentException("Illegal expectedHeaders: " + expectedHeaders);
+        }
+        if (threshold < 1 || threshold > MAX_COUNT) {
+            throw new IllegalArgumentException("Illegal threshold: " + threshold);
+        }
+        int width = 16;
+        while (width < expectedHeaders && width < 1 << 24) {
+            width <<= 1;
+        }
+        this.counters = new byte[DEPTH * width];
+        this.mask = width - 1;
+        this.threshold = threshold;
+        this.sampleSize = 10 * width;
+    }
+    
+    @Override
+    public boolean shouldIndex(byte[] name, byte[] value) {
+        return increment(HpackUtil.hash(name, value)) >= threshold;
+    }
+    
+    @Override
+    public String getPolicyName() {
+        return "FREQUENCY";
+    }
+    
+    /**
+     * Registra una aparición y devuelve la frecuencia estimada. Solo se
+     * incrementan los contadores mínimos (actualización conservadora).
+     */
+    private int increment(int h) {
+        int width = mask + 1;
+        int min = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            min = Math.min(min, counters[row * width + slot(h, row)]);
+        }
+        if (min < MAX_COUNT) {
+            for (int row = 0; row < DEPTH; row++) {
+                int i = row * width + slot(h, row);
+                if (counters[i] == min) {
+                    counters[i]++;
+                }
+            }
+            min++;
+        }
+        if (++additions == sampleSize) {
+            age();
+        }
+        return min;
+    }
+    
+    private void age() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>= 1;
+        }
+        additions >>= 1;
+    }
+    
+    private int slot(int h, int row) {
+        h *= SEEDS[row];
+        return (h ^ (h >>> 16)) & mask;
+    }
+}
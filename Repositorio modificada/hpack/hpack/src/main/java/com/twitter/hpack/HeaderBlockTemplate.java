@@ -0,0 +1,68 @@
+package main.java.com.twitter.hpack;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Lista fija de headers precompilada por un Encoder (Encoder.compile).
+ * Los headers cuya representación no depende de la tabla dinámica
+ * (índices estáticos, literales never indexed o sin indexar) quedan ya
+ * codificados y se emiten con una copia; el resto se vuelve a codificar en
+ * cada uso, en el mismo orden.
+ *
+ * Solo sirve para el Encoder que la compiló, y como él no es thread-safe.
+ * Si cambia la capacidad de la tabla dinámica se recompila sola en el
+ * siguiente uso.
+ */
+public final class HeaderBlockTemplate {
+    final HeaderEncodingStrategy owner;
+    final EncoderHeader[] headers;
+
+    /**
+     * Bytes ya codificados de los headers fijos, en orden
+     */
+    byte[] encoded;
+
+    /**
+     * runEnds[i] es el fin en encoded del tramo fijo que precede a
+     * variables[i]; el último tramo termina en runEnds[variables.length]
+     */
+    int[] runEnds;
+    EncoderHeader[] variables;
+    int compiledCapacity = -1;
+
+    HeaderBlockTemplate(HeaderEncodingStrategy owner, List<EncoderHeader> headers) {
+        this.owner = owner;
+        this.headers = new EncoderHeader[headers.size()];
+        for (int i = 0; i < this.headers.length; i++) {
+            EncoderHeader header = headers.get(i);
+            byte[] name = header.getName();
+            byte[] value = header.getValue();
+            // Copia para que cambios posteriores del llamador no afecten al template
+            this.headers[i] = new EncoderHeader(Arrays.copyOf(name, name.length),
+                Arrays.copyOf(value, value.length), header.isSensitive());
+        }
+    }
+
+    /**
+     * Cantidad de headers del template
+     */
+    public int length() {
+        return headers.length;
+    }
+
+    /**
+     * Cantidad de headers que se codifican en cada uso (según la última
+     * compilación)
+     */
+    public int variableLength() {
+        return variables != null ? variables.length : headers.length;
+    }
+
+    /**
+     * Bytes que se emiten con una copia (según la última compilación)
+     */
+    public int fixedLength() {
+        return encoded != null ? encoded.length : 0;
+    }
+}
@@ -1,6 +1,8 @@
 package main.java.com.twitter.hpack;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * Estrategia de encoding de headers HPACK
@@ -12,16 +14,15 @@ public class HeaderEncodingStrategy {
     private final StringEncoder stringEncoder;
     private final boolean useIndexing;
     private final StaticHeaderTable staticTable;
+    private final LiteralHeaderCache literalCache;
+    private final IndexingPolicy indexingPolicy;
+    private final ByteArrayByteSink literalSink;
     
     public HeaderEncodingStrategy(DynamicTableManager tableManager,
                                  NumericEncoder numericEncoder,
                                  StringEncoder stringEncoder,
                                  boolean useIndexing) {
-        this.tableManager = tableManager;
-        this.numericEncoder = numericEncoder;
-        this.stringEncoder = stringEncoder;
-        this.useIndexing = useIndexing;
-        this.staticTable = new StaticTable(); // Podría inyectarse para mayor flexibilidad
+        this(tableManager, numericEncoder, stringEncoder, useIndexing, StaticTable.INSTANCE, null);
     }
     
     public HeaderEncodingStrategy(DynamicTableManager tableManager,
@@ -29,30 +30,87 @@ public class HeaderEncodingStrategy {
                                  StringEncoder stringEncoder,
                                  boolean useIndexing,
                                  StaticHeaderTable staticTable) {
+        this(tableManager, numericEncoder, stringEncoder, useIndexing, staticTable, null);
+    }
+    
+    /**
+     * literalCache, si no es null, guarda la representación codificada de
+     * los literales que no se indexan
+     */
+    public HeaderEncodingStrategy(DynamicTableManager tableManager,
+                                 NumericEncoder numericEncoder,
+                                 StringEncoder stringEncoder,
+                                 boolean useIndexing,
+                                 StaticHeaderTable staticTable,
+                                 LiteralHeaderCache literalCache) {
+        this(tableManager, numericEncoder, stringEncoder, useIndexing, staticTable, literalCache,
+             new DefaultIndexingPolicy());
+    }
+    
+    /**
+     * indexingPolicy decide qué literales se agregan a la tabla dinámica
+     * cuando useIndexing es true
+     */
+    public HeaderEncodingStrategy(DynamicTableManager tableManager,
+                                 NumericEncoder numericEncoder,
+                                 StringEncoder stringEncoder,
+                                 boolean useIndexing,
+                                 StaticHeaderTable staticTable,
+                                 LiteralHeaderCache literalCache,
+                                 IndexingPolicy indexingPolicy) {
         this.tableManager = tableManager;
         this.numericEncoder = numericEncoder;
         this.stringEncoder = stringEncoder;
         this.useIndexing = useIndexing;
         this.staticTable = staticTable;
+        this.literalCache = literalCache;
+        this.literalSink = literalCache != null ? new ByteArrayByteSink() : null;
+        this.indexingPolicy = HpackUtil.requireNonNull(indexingPolicy);
     }
     
     /**
      * Codifica un header según las reglas HPACK
      */
     public void encodeHeader(ByteSink out, byte[] name, byte[] value, boolean sensitive) throws IOException {
+        encodeHeader(out, name, value, null, sensitive);
+    }
+    
+    /**
+     * Variante para proxies: cuando se elige una representación literal el
+     * valor se copia tal como llegó al decoder, Huffman incluido, sin
+     * decodificarlo ni volver a codificarlo. Solo se decodifica si hace
+     * falta para buscarlo o agregarlo en la tabla dinámica.
+     */
+    public void encodeHeader(ByteSink out, byte[] name, LazyHeaderValue value, boolean sensitive) throws IOException {
+        if (value.isDecoded() || (useIndexing && tableManager.getCapacity() > 0 && !sensitive)) {
+            encodeHeader(out, name, value.getValue(), value, sensitive);
+            return;
+        }
+        
+        // Sin indexar no hace falta el valor: solo se busca el nombre
+        HpackUtil.IndexType indexType = sensitive ? HpackUtil.IndexType.NEVER : HpackUtil.IndexType.NONE;
+        encodeLiteralHeader(out, name, null, value, indexType, findBestNameIndex(name));
+    }
+    
+    /**
+     * original, si no es null, es el valor tal como llegó y es lo que se
+     * escribe en las representaciones literales
+     */
+    private void encodeHeader(ByteSink out, byte[] name, byte[] value, LazyHeaderValue original,
+                              boolean sensitive) throws IOException {
         if (sensitive) {
-            encodeSensitiveHeader(out, name, value);
+            encodeSensitiveHeader(out, name, value, original);
             return;
         }
         
         if (tableManager.getCapacity() == 0) {
-            encodeHeaderWithStaticTableOnly(out, name, value);
+            encodeHeaderWithStaticTableOnly(out, name, value, original);
             return;
         }
         
         int headerSize = HeaderField.sizeOf(name, value);
         if (headerSize > tableManager.getCapacity()) {
-            encodeLiteralHeader(out, name, value, HpackUtil.IndexType.NONE);
+            encodeLiteralHeader(out, name, value, original, HpackUtil.IndexType.NONE, null);
             return;
         }
         
@@ -71,27 +129,175 @@ public class HeaderEncodingStrategy {
         }
         
         // Encoding literal
-        encodeLiteralHeaderWithIndexing(out, name, value);
+        encodeLiteralHeaderWithIndexing(out, name, value, original);
+    }
+    
+    /**
+     * Codifica un bloque completo de headers sobre el mismo sink. Produce
+     * lo mismo que encodeHeader para cada header, en orden: lo que ahorra
+     * está en Encoder, que dimensiona el buffer una vez y escribe el bloque
+     * con una sola llamada.
+     */
+    public void encodeHeaders(ByteSink out, List<EncoderHeader> headers) throws IOException {
+        for (int i = 0, size = headers.size(); i < size; i++) {
+            EncoderHeader header = headers.get(i);
+            encodeHeader(out, header.getName(), header.getValue(), header.isSensitive());
+        }
+    }
+    
+    /**
+     * Precompila una lista fija de headers. Los que se codifican igual sea
+     * cual sea el contenido de la tabla dinámica quedan como bytes; el
+     * resto se codifica en cada uso.
+     */
+    public HeaderBlockTemplate compile(List<EncoderHeader> headers) throws IOException {
+        HeaderBlockTemplate template = new HeaderBlockTemplate(this, headers);
+        compile(template);
+        return template;
+    }
+    
+    private void compile(HeaderBlockTemplate template) throws IOException {
+        int capacity = tableManager.getCapacity();
+        // Sin indexing, o con capacidad 0, la tabla dinámica queda siempre vacía
+        boolean emptyTable = !useIndexing || capacity == 0;
+        
+        EncoderHeader[] headers = template.headers;
+        ByteArrayByteSink sink = new ByteArrayByteSink();
+        int[] runEnds = new int[headers.length + 1];
+        EncoderHeader[] variables = new EncoderHeader[headers.length];
+        int variableCount = 0;
+        for (EncoderHeader header : headers) {
+            if (emptyTable || isTableIndependent(header, capacity)) {
+                // Estas representaciones tampoco modifican la tabla dinámica
+                encodeHeader(sink, header.getName(), header.getValue(), header.isSensitive());
+            } else {
+                runEnds[variableCount] = sink.size();
+                variables[variableCount++] = header;
+            }
+        }
+        runEnds[variableCount] = sink.size();
+        
+        template.encoded = Arrays.copyOf(sink.array(), sink.size());
+        template.runEnds = Arrays.copyOf(runEnds, variableCount + 1);
+        template.variables = Arrays.copyOf(variables, variableCount);
+        template.compiledCapacity = capacity;
+    }
+    
+    /**
+     * Si encodeHeader elige la misma representación para este header sea
+     * cual sea el contenido de la tabla dinámica (con esta capacidad)
+     */
+    private boolean isTableIndependent(EncoderHeader header, int capacity) {
+        byte[] name = header.getName();
+        byte[] value = header.getValue();
+        if (header.isSensitive()) {
+            // Never indexed: solo importa de dónde sale el índice del nombre
+            return staticTable.getIndex(name) != -1;
+        }
+        if (HeaderField.sizeOf(name, value) > capacity) {
+            return true;
+        }
+        // Un header de la tabla estática nunca se agrega a la dinámica
+        return staticTable.getIndex(name, value) != -1;
+    }
+    
+    /**
+     * Emite el template: copia los tramos fijos y codifica los headers
+     * variables entre ellos. Lo recompila si cambió la capacidad de la
+     * tabla dinámica.
+     */
+    public void encodeHeaders(ByteSink out, HeaderBlockTemplate template) throws IOException {
+        if (template.owner != this) {
+            throw new IllegalArgumentException("template compiled by another encoder");
+        }
+        if (template.compiledCapacity != tableManager.getCapacity()) {
+            compile(template);
+        }
+        
+        byte[] encoded = template.encoded;
+        int[] runEnds = template.runEnds;
+        EncoderHeader[] variables = template.variables;
+        int start = 0;
+        for (int i = 0; i < variables.length; i++) {
+            if (runEnds[i] > start) {
+                out.write(encoded, start, runEnds[i] - start);
+                start = runEnds[i];
+            }
+            EncoderHeader header = variables[i];
+            encodeHeader(out, header.getName(), header.getValue(), header.isSensitive());
+        }
+        if (encoded.length > start) {
+            out.write(encoded, start, encoded.length - start);
+        }
+    }
+    
+    /**
+     * Cota superior de los bytes que emite encodeHeaders para el template
+     */
+    public int getMaxEncodedLength(HeaderBlockTemplate template) {
+        if (template.compiledCapacity != tableManager.getCapacity()) {
+            return getMaxEncodedLength(Arrays.asList(template.headers));
+        }
+        long length = template.encoded.length;
+        for (EncoderHeader header : template.variables) {
+            length += getMaxEncodedLength(header.getName(), header.getValue());
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("header block too large: " + length);
+        }
+        return (int) length;
+    }
+    
+    /**
+     * Suma de getMaxEncodedLength para todos los headers del bloque
+     */
+    public int getMaxEncodedLength(List<EncoderHeader> headers) {
+        long length = 0;
+        for (int i = 0, size = headers.size(); i < size; i++) {
+            EncoderHeader header = headers.get(i);
+            length += getMaxEncodedLength(header.getName(), header.getValue());
+        }
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("header block too large: " + length);
+        }
+        return (int) length;
+    }
+    
+    /**
+     * Cota superior de los bytes que ocupa encodeHeader para este header,
+     * válida para cualquier representación y estado de la tabla dinámica.
+     */
+    public int getMaxEncodedLength(byte[] name, byte[] value) {
+        // Un índice (de header o de nombre) ocupa como mucho 6 bytes
+        int nameLength = Math.max(6, 1 + stringEncoder.getMaxEncodedLength(name));
+        return nameLength + stringEncoder.getMaxEncodedLength(value);
+    }
+    
+    public int getMaxEncodedLength(byte[] name, LazyHeaderValue value) {
+        int nameLength = Math.max(6, 1 + stringEncoder.getMaxEncodedLength(name));
+        return nameLength + stringEncoder.getMaxEncodedLength(value);
     }
     
     /**
      * Codifica header sensible (never indexed)
      */
-    private void encodeSensitiveHeader(ByteSink out, byte[] name, byte[] value) throws IOException {
+    private void encodeSensitiveHeader(ByteSink out, byte[] name, byte[] value,
+                                       LazyHeaderValue original) throws IOException {
         Integer nameIndex = findBestNameIndex(name);
-        encodeLiteralHeader(out, name, value, HpackUtil.IndexType.NEVER, nameIndex);
+        encodeLiteralHeader(out, name, value, original, HpackUtil.IndexType.NEVER, nameIndex);
     }
     
     /**
      * Codifica header cuando solo se usa tabla estática
      */
-    private void encodeHeaderWithStaticTableOnly(ByteSink out, byte[] name, byte[] value) throws IOException {
+    private void encodeHeaderWithStaticTableOnly(ByteSink out, byte[] name, byte[] value,
+                                                 LazyHeaderValue original) throws IOException {
         int staticIndex = staticTable.getIndex(name, value);
         if (staticIndex != -1) {
             encodeIndexedHeader(out, staticIndex);
         } else {
             Integer nameIndex = staticTable.getIndex(name);
-            encodeLiteralHeader(out, name, value, HpackUtil.IndexType.NONE, 
+            encodeLiteralHeader(out, name, value, original, HpackUtil.IndexType.NONE,
                               nameIndex != -1 ? nameIndex : null);
         }
     }
@@ -99,19 +305,21 @@ public class HeaderEncodingStrategy {
     /**
      * Codifica header literal con indexing opcional
      */
-    private void encodeLiteralHeaderWithIndexing(ByteSink out, byte[] name, byte[] value) throws IOException {
+    private void encodeLiteralHeaderWithIndexing(ByteSink out, byte[] name, byte[] value,
+                                                 LazyHeaderValue original) throws IOException {
         Integer nameIndex = findBestNameIndex(name);
+        boolean index = useIndexing && indexingPolicy.shouldIndex(name, value);
         
-        if (useIndexing) {
+        if (index) {
             tableManager.ensureCapacity(HeaderField.sizeOf(name, value));
         }
         
-        HpackUtil.IndexType indexType = useIndexing ? 
+        HpackUtil.IndexType indexType = index ? 
             HpackUtil.IndexType.INCREMENTAL : HpackUtil.IndexType.NONE;
             
-        encodeLiteralHeader(out, name, value, indexType, nameIndex);
+        encodeLiteralHeader(out, name, value, original, indexType, nameIndex);
         
-        if (useIndexing) {
+        if (index) {
             tableManager.addHeader(name, value);
         }
     }
@@ -124,21 +332,19 @@ public class HeaderEncodingStrategy {
     }
     
     /**
-     * Codifica header literal
+     * Codifica header literal con índice de nombre opcional. Si original no
+     * es null se escribe en lugar de value.
      */
-    private void encodeLiteralHeader(ByteSink out, byte[] name, byte[] value, 
-                                   HpackUtil.IndexType indexType) throws IOException {
-        encodeLiteralHeader(out, name, value, indexType, null);
-    }
-    
-    /**
-     * Codifica header literal con índice de nombre opcional
-     */
-    private void encodeLiteralHeader(ByteSink out, byte[] name, byte[] value,
+    private void encodeLiteralHeader(ByteSink out, byte[] name, byte[] value, LazyHeaderValue original,
                                    HpackUtil.IndexType indexType, Integer nameIndex) throws IOException {
         int mask = getMaskForIndexType(indexType);
         int prefixBits = getPrefixBitsForIndexType(indexType);
         
+        if (literalCache != null && original == null && indexType != HpackUtil.IndexType.INCREMENTAL) {
+            encodeCachedLiteralHeader(out, name, value, mask, prefixBits, nameIndex);
+            return;
+        }
+        
         int actualNameIndex = nameIndex != null ? nameIndex : 0;
         numericEncoder.encodeInteger(out, mask, prefixBits, actualNameIndex);
         
@@ -146,7 +352,52 @@ public class HeaderEncodingStrategy {
             stringEncoder.encodeString(out, name);
         }
         
-        stringEncoder.encodeString(out, value);
+        if (original != null) {
+            stringEncoder.encodeString(out, original);
+        } else {
+            stringEncoder.encodeString(out, value);
+        }
+    }
+    
+    /**
+     * Literal sin indexar a través de la cache. La entrada guarda el nombre
+     * como índice estático o como literal; si el nombre está en la tabla
+     * dinámica solo se escribe el prefijo con ese índice y se copia el
+     * valor ya codificado.
+     */
+    private void encodeCachedLiteralHeader(ByteSink out, byte[] name, byte[] value, int mask, int prefixBits,
+                                           Integer nameIndex) throws IOException {
+        boolean dynamicName = nameIndex != null && nameIndex > staticTable.length();
+        int staticNameIndex = nameIndex == null || dynamicName ? 0 : nameIndex;
+        int representation = mask << 8 | staticNameIndex;
+        
+        byte[] encoded;
+        int length;
+        int valueOffset;
+        LiteralHeaderCache.Entry entry = literalCache.find(name, value, representation);
+        if (entry != null) {
+            encoded = entry.encoded;
+            length = encoded.length;
+            valueOffset = entry.valueOffset;
+        } else {
+            literalSink.reset();
+            numericEncoder.encodeInteger(literalSink, mask, prefixBits, staticNameIndex);
+            if (staticNameIndex == 0) {
+                stringEncoder.encodeString(literalSink, name);
+            }
+            valueOffset = literalSink.size();
+            stringEncoder.encodeString(literalSink, value);
+            encoded = literalSink.array();
+            length = literalSink.size();
+            literalCache.put(name, value, representation, encoded, length, valueOffset);
+        }
+        
+        if (dynamicName) {
+            numericEncoder.encodeInteger(out, mask, prefixBits, nameIndex);
+            out.write(encoded, valueOffset, length - valueOffset);
+        } else {
+            out.write(encoded, 0, length);
+        }
     }
     
     /**
@@ -159,13 +410,8 @@ public class HeaderEncodingStrategy {
             return staticIndex;
         }
         
-        // Luego buscar en tabla dinámica
-        Integer dynamicIndex = tableManager.findNameIndex(name);
-        if (dynamicIndex != null) {
-            return dynamicIndex + staticTable.length();
-        }
-        
-        return null;
+        // Luego buscar en tabla dinámica (el índice ya incluye la tabla estática)
+        return tableManager.findNameIndex(name);
     }
     
     /**
@@ -215,4 +461,8 @@ public class HeaderEncodingStrategy {
     public boolean isUseIndexing() {
         return useIndexing;
     }
+    
+    public IndexingPolicy getIndexingPolicy() {
+        return indexingPolicy;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package main.java.com.twitter.hpack;
+
+import java.util.Arrays;
+
+/**
+ * Indice hash de direccionamiento abierto (sondeo lineal) sobre las
+ * entradas de una tabla dinamica. Solo guarda enteros: el hash de la clave
+ * y el numero de secuencia de insercion de la entrada mas reciente con esa
+ * clave. Las claves se comparan resolviendo la secuencia a su HeaderField.
+ */
+final class HeaderFieldIndex {
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Resuelve un numero de secuencia a la entrada viva correspondiente
+     */
+    interface Entries {
+        HeaderField get(int sequence);
+    }
+
+    private final boolean matchValue;
+    private int[] hashes;
+    private int[] sequences; // 0 = slot vacio
+    private int mask;
+    private int count;
+
+    /**
+     * @param matchValue si la clave es nombre y valor o solo el nombre
+     */
+    HeaderFieldIndex(boolean matchValue) {
+        this.matchValue = matchValue;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    int size() {
+        return count;
+    }
+
+    /**
+     * Devuelve la secuencia de la entrada mas reciente con la clave, o 0
+     */
+    int find(byte[] name, byte[] value, Entries entries) {
+        int h = hash(name, value);
+        for (int i = h & mask; sequences[i] != 0; i = (i + 1) & mask) {
+            if (hashes[i] == h && matches(entries.get(sequences[i]), name, value)) {
+                return sequences[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Registra la entrada como la mas reciente para su clave
+     */
+    void put(HeaderField entry, int sequence, Entries entries) {
+        int h = hash(entry.name, entry.value);
+        int i = h & mask;
+        for (; sequences[i] != 0; i = (i + 1) & mask) {
+            if (hashes[i] == h && matches(entries.get(sequences[i]), entry.name, entry.value)) {
+                sequences[i] = sequence;
+                return;
+            }
+        }
+        hashes[i] = h;
+        sequences[i] = sequence;
+        if (++count << 1 > hashes.length) {
+            allocate(hashes.length << 1);
+        }
+    }
+
+    /**
+     * Quita la entrada desalojada si sigue siendo la mas reciente de su clave
+     */
+    void remove(HeaderField entry, int sequence) {
+        int h = hash(entry.name, entry.value);
+        int i = h & mask;
+        while (sequences[i] != sequence) {
+            if (sequences[i] == 0) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+
+        OpenAddressing.delete(hashes, sequences, i);
+        count--;
+    }
+
+    /**
+     * Reduce los arrays si la tabla ya no puede contener tantas entradas
+     */
+    void trimTo(int maxEntries) {
+        int capacity = INITIAL_CAPACITY;
+        while (capacity < maxEntries << 1) {
+            capacity <<= 1;
+        }
+        if (capacity < hashes.length && count << 1 <= capacity) {
+            allocate(capacity);
+        }
+    }
+
+    void clear() {
+        Arrays.fill(hashes, 0);
+        Arrays.fill(sequences, 0);
+        count = 0;
+    }
+
+    private boolean matches(HeaderField entry, byte[] name, byte[] value) {
+        return HpackUtil.equals(name, entry.name) && (!matchValue || HpackUtil.equals(value, entry.value));
+    }
+
+    private int hash(byte[] name, byte[] value) {
+        return OpenAddressing.mix(HpackUtil.hash(name, matchValue ? value : null));
+    }
+
+    private void allocate(int capacity) {
+        int[] oldHashes = hashes;
+        int[] oldSequences = sequences;
+        hashes = new int[capacity];
+        sequences = new int[capacity];
+        mask = capacity - 1;
+        if (oldHashes != null) {
+            OpenAddressing.rehash(oldHashes, oldSequences, hashes, sequences);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Listener que recibe nombre y valor como vistas (buffer, offset, longitud)
+ * sobre buffers del decodificador. Las vistas solo son validas durante la
+ * llamada: quien necesite conservarlas debe copiarlas.
+ */
+public interface HeaderSliceListener {
+    void addHeader(byte[] name, int nameOffset, int nameLength,
+                   byte[] value, int valueOffset, int valueLength,
+                   boolean sensitive);
+}
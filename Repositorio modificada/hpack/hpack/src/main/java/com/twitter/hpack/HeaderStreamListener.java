@@ -0,0 +1,15 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Listener incremental: cada header llega como startHeader, cero o mas
+ * trozos del valor y endHeader. Los valores literales se entregan a medida
+ * que se decodifican, sin esperar al fragmento que los completa. Como en
+ * HeaderSliceListener, las vistas solo son validas durante la llamada.
+ */
+public interface HeaderStreamListener {
+    void startHeader(byte[] name, int nameOffset, int nameLength, boolean sensitive);
+
+    void addValue(byte[] value, int offset, int length);
+
+    void endHeader();
+}
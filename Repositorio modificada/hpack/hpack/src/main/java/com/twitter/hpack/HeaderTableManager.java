@@ -21,16 +21,12 @@ public class HeaderTableManager {
         }
     }
     
-    public void readName(int index, byte[] nameBuffer) throws IOException {
-        if (index <= staticTable.length()) {
-            HeaderField headerField = staticTable.getEntry(index);
-            System.arraycopy(headerField.name, 0, nameBuffer, 0, headerField.name.length);
-        } else if (index - staticTable.length() <= dynamicTable.length()) {
-            HeaderField headerField = dynamicTable.getEntry(index - staticTable.length());
-            System.arraycopy(headerField.name, 0, nameBuffer, 0, headerField.name.length);
-        } else {
-            throw new IOException("illegal index value");
-        }
+    /**
+     * Devuelve el nombre de la entrada sin copiarlo: las entradas de las
+     * tablas son inmutables y no deben modificarse.
+     */
+    public byte[] readName(int index) throws IOException {
+        return getEntry(index).name;
     }
     
     public void indexHeader(int index, HeaderListener headerListener) throws IOException {
@@ -45,6 +41,35 @@ public class HeaderTableManager {
         }
     }
     
+    public void indexHeader(int index, HeaderSliceListener headerListener) throws IOException {
+        HeaderField headerField = getEntry(index);
+        if (headerField.name.length == 0) {
+            throw new AssertionError("name is empty");
+        }
+        headerListener.addHeader(headerField.name, 0, headerField.name.length,
+                                 headerField.value, 0, headerField.value.length, false);
+    }
+    
+    public void indexHeader(int index, HeaderStreamListener headerListener) throws IOException {
+        HeaderField headerField = getEntry(index);
+        if (headerField.name.length == 0) {
+            throw new AssertionError("name is empty");
+        }
+        headerListener.startHeader(headerField.name, 0, headerField.name.length, false);
+        if (headerField.value.length > 0) {
+            headerListener.addValue(headerField.value, 0, headerField.value.length);
+        }
+        headerListener.endHeader();
+    }
+    
+    public void indexHeaderLazy(int index, LazyHeaderListener headerListener) throws IOException {
+        HeaderField headerField = getEntry(index);
+        if (headerField.name.length == 0) {
+            throw new AssertionError("name is empty");
+        }
+        headerListener.addHeader(headerField.name, new LazyHeaderValue(headerField.value, false), false);
+    }
+    
     private void addHeader(HeaderListener headerListener, byte[] name, byte[] value, boolean sensitive) {
         if (name.length == 0) {
             throw new AssertionError("name is empty");
@@ -16,6 +16,25 @@ final class HpackUtil {
         return c == 0;
     }
     
+    /**
+     * Hash polinomial de nombre y valor, o solo del nombre si value es
+     * null. No mezcla los bits: las tablas que lo usan aplican el suyo.
+     */
+    static int hash(byte[] name, byte[] value) {
+        int h = 0;
+        for (int i = 0; i < name.length; i++) {
+            h = 31 * h + name[i];
+        }
+        if (value != null) {
+            // El separador evita que ("ab", "c") y ("a", "bc") coincidan siempre
+            h = 31 * h + ':';
+            for (int i = 0; i < value.length; i++) {
+                h = 31 * h + value[i];
+            }
+        }
+        return h;
+    }
+    
     static <T> T requireNonNull(T obj) {
         if (obj == null)
             throw new NullPointerException();
@@ -1,12 +1,24 @@
 package main.java.com.twitter.hpack;
 
 public final class Huffman {
+    /**
+     * Compartido por todos los decoders: la tabla es inmutable y el estado
+     * incremental vive en cada TableDrivenHuffmanDecoder.Stream
+     */
     public static final HuffmanDecoder DECODER = 
-        new StandardHuffmanDecoder(HUFFMAN_CODES, HUFFMAN_CODE_LENGTHS);
+        new TableDrivenHuffmanDecoder(HUFFMAN_CODES, HUFFMAN_CODE_LENGTHS);
     
     public static final HuffmanEncoder ENCODER = 
         new StandardHuffmanEncoder(HUFFMAN_CODES, HUFFMAN_CODE_LENGTHS);
     
+    /**
+     * Cota superior de la longitud decodificada de encodedLength bytes
+     * Huffman: ningún símbolo ocupa menos de 5 bits.
+     */
+    public static int getMaxDecodedLength(int encodedLength) {
+        return (int) (((long) encodedLength << 3) / 5);
+    }
+    
     private Huffman() {
         // utility class
     }
@@ -4,4 +4,11 @@ import java.io.IOException;
 
 public interface HuffmanDecoder {
     byte[] decode(byte[] data) throws IOException;
+    
+    /**
+     * Decodifica src[srcOff, srcOff + srcLen) en dst a partir de dstOff y
+     * devuelve la cantidad de bytes escritos. dst debe tener lugar para
+     * Huffman.getMaxDecodedLength(srcLen) bytes desde dstOff.
+     */
+    int decode(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) throws IOException;
 }
\ No newline at end of file
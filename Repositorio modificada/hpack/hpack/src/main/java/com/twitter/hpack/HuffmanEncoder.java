@@ -2,9 +2,33 @@ package main.java.com.twitter.hpack;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 public interface HuffmanEncoder {
     void encode(OutputStream out, byte[] data) throws IOException;
     void encode(OutputStream out, byte[] data, int off, int len) throws IOException;
+    void encode(ByteSink out, byte[] data, int off, int len) throws IOException;
+    
+    /**
+     * Escribe data codificado en dst a partir de dstOff. encodedLength debe
+     * ser exactamente getEncodedLength(data): con eso se valida el rango una
+     * sola vez y no por símbolo.
+     */
+    void encode(byte[] dst, int dstOff, byte[] data, int encodedLength);
+    
+    /**
+     * Igual que el anterior pero sobre un ByteBuffer (heap o directo), a
+     * partir de su posición, que avanza encodedLength bytes.
+     */
+    void encode(ByteBuffer dst, byte[] data, int encodedLength);
+    
+    /**
+     * Codifica data en dst a partir de dstOff en una sola pasada, pero solo
+     * si el resultado ocupa menos de limit bytes: en cuanto se pasa abandona
+     * y devuelve -1, dejando dst con basura. Si no, devuelve la longitud
+     * codificada. dst debe tener al menos limit - 1 bytes desde dstOff.
+     */
+    int encodeIfShorter(byte[] dst, int dstOff, byte[] data, int limit);
+    
     int getEncodedLength(byte[] data);
 }
\ No newline at end of file
@@ -3,10 +3,26 @@ package main.java.com.twitter.hpack;
 import java.io.IOException;
 
 public class HuffmanStringProcessor {
+    private static final byte[] EMPTY = new byte[0];
+    
     private final HuffmanDecoder huffmanDecoder;
+    // null si el decodificador no admite decodificacion incremental
+    private final TableDrivenHuffmanDecoder.Stream stream;
+    private byte[] encoded = EMPTY;
     
     public HuffmanStringProcessor(HuffmanDecoder huffmanDecoder) {
         this.huffmanDecoder = huffmanDecoder;
+        this.stream = huffmanDecoder instanceof TableDrivenHuffmanDecoder
+            ? ((TableDrivenHuffmanDecoder) huffmanDecoder).newStream()
+            : null;
+    }
+    
+    /**
+     * Si los literales Huffman se pueden leer de a fragmentos con
+     * readStringLiteralChunk
+     */
+    public boolean isIncremental() {
+        return stream != null;
     }
     
     public byte[] readStringLiteral(ByteSource in, int length, boolean huffmanEncoded) throws IOException {
@@ -22,4 +38,84 @@ public class HuffmanStringProcessor {
             return buf;
         }
     }
+    
+    /**
+     * Lee el literal en dst (desde el offset 0) y devuelve su longitud
+     * decodificada. dst debe tener al menos maxDecodedLength(length) bytes.
+     * Los bytes Huffman se leen en un buffer propio que se reutiliza.
+     */
+    public int readStringLiteral(ByteSource in, int length, boolean huffmanEncoded, byte[] dst) throws IOException {
+        if (!huffmanEncoded) {
+            if (in.read(dst, 0, length) != length) {
+                throw new IOException("decompression failure");
+            }
+            return length;
+        }
+        
+        if (encoded.length < length) {
+            encoded = new byte[length];
+        }
+        if (in.read(encoded, 0, length) != length) {
+            throw new IOException("decompression failure");
+        }
+        return huffmanDecoder.decode(encoded, 0, length, dst, 0);
+    }
+    
+    /**
+     * Lee los siguientes length bytes de un literal que puede llegar en
+     * varios fragmentos y escribe lo decodificado en dst desde dstOff.
+     * Devuelve los bytes escritos; los bits de un simbolo incompleto quedan
+     * pendientes hasta el siguiente fragmento. Sin decodificador incremental
+     * length debe ser el literal completo.
+     */
+    public int readStringLiteralChunk(ByteSource in, int length, boolean huffmanEncoded,
+                                      byte[] dst, int dstOff) throws IOException {
+        if (!huffmanEncoded) {
+            if (in.read(dst, dstOff, length) != length) {
+                throw new IOException("decompression failure");
+            }
+            return length;
+        }
+        
+        if (encoded.length < length) {
+            encoded = new byte[length];
+        }
+        if (in.read(encoded, 0, length) != length) {
+            throw new IOException("decompression failure");
+        }
+        if (stream == null) {
+            return huffmanDecoder.decode(encoded, 0, length, dst, dstOff);
+        }
+        return stream.decode(encoded, 0, length, dst, dstOff);
+    }
+    
+    /**
+     * Termina un literal leido con readStringLiteralChunk validando el padding
+     */
+    public void endStringLiteral(boolean huffmanEncoded) throws IOException {
+        if (huffmanEncoded && stream != null) {
+            stream.end();
+        }
+    }
+    
+    public void reset() {
+        if (stream != null) {
+            stream.reset();
+        }
+    }
+    
+    /**
+     * Suelta el buffer de lectura; se vuelve a crear a demanda
+     */
+    public void releaseBuffers() {
+        encoded = EMPTY;
+    }
+    
+    /**
+     * Cota superior de la longitud decodificada: cada simbolo Huffman
+     * ocupa al menos 5 bits.
+     */
+    public int maxDecodedLength(int length, boolean huffmanEncoded) {
+        return huffmanEncoded ? Huffman.getMaxDecodedLength(length) : length;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Interface para políticas de admisión en la tabla dinámica: decide si un
+ * literal que se podría indexar se agrega a la tabla (INCREMENTAL) o se
+ * envía sin indexar (NONE). Solo se consulta para headers no sensibles que
+ * no están en ninguna tabla y entran en la capacidad actual.
+ */
+public interface IndexingPolicy {
+    /**
+     * Determina si el header se agrega a la tabla dinámica
+     */
+    boolean shouldIndex(byte[] name, byte[] value);
+    
+    /**
+     * Obtiene el nombre de la política
+     */
+    String getPolicyName();
+}
@@ -20,6 +20,11 @@ public class InputStreamByteSource implements ByteSource {
         return inputStream.read(b);
     }
     
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        return inputStream.read(b, off, len);
+    }
+    
     @Override
     public int available() throws IOException {
         return inputStream.available();
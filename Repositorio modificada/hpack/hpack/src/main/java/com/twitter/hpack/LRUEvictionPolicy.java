@@ -1,59 +1,183 @@
 package main.java.com.twitter.hpack;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 /**
  * Política de evicción LRU (Least Recently Used) - Ejemplo de extensión
  * No es parte del RFC 7541 pero demuestra la extensibilidad
+ *
+ * Solo lleva la cuenta de accesos: el RFC (4.4) fija qué entradas se
+ * desalojan (siempre las más antiguas) y DynamicTable no la consulta, así
+ * que no cambia la evicción. Tampoco la alimenta la tabla: recordAccess,
+ * removeEntry y clear los llama quien use la política. El registro es O(1)
+ * y sin objetos por entrada: una lista doblemente enlazada sobre arrays de
+ * int y un índice hash abierto de clave a nodo.
  */
 public class LRUEvictionPolicy implements EvictionPolicy {
-    private final LinkedHashMap<Integer, Long> accessOrder;
-    private long accessCounter;
-    
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int NIL = -1;
+
+    // Nodos: clave y enlaces al menos (older) y más (newer) reciente
+    private int[] keys;
+    private int[] older;
+    private int[] newer;
+    private int leastRecent = NIL;
+    private int mostRecent = NIL;
+    private int freeNodes = NIL;
+    private int usedNodes;
+
+    // Índice clave -> nodo + 1 (0 = slot vacío), con el hash de la clave
+    private int[] slotHashes;
+    private int[] slots;
+    private int mask;
+    private int count;
+
     public LRUEvictionPolicy() {
-        this.accessOrder = new LinkedHashMap<>(16, 0.75f, true);
-        this.accessCounter = 0;
+        allocateNodes(INITIAL_CAPACITY);
+        allocateSlots(INITIAL_CAPACITY << 1);
     }
-    
+
     public void recordAccess(int entryIndex) {
-        accessOrder.put(entryIndex, ++accessCounter);
+        int h = OpenAddressing.mix(entryIndex);
+        int slot = find(entryIndex, h);
+        int node;
+        if (slots[slot] != 0) {
+            node = slots[slot] - 1;
+            if (node == mostRecent) {
+                return;
+            }
+            unlink(node);
+        } else {
+            node = newNode(entryIndex);
+            slotHashes[slot] = h;
+            slots[slot] = node + 1;
+            if (++count << 1 > slots.length) {
+                allocateSlots(slots.length << 1);
+            }
+        }
+        append(node);
     }
-    
+
+    /**
+     * Deja de seguir la entrada (por ejemplo, al desalojarla)
+     */
+    public void removeEntry(int entryIndex) {
+        int slot = find(entryIndex, OpenAddressing.mix(entryIndex));
+        if (slots[slot] == 0) {
+            return;
+        }
+        int node = slots[slot] - 1;
+        unlink(node);
+        older[node] = freeNodes;
+        freeNodes = node;
+        OpenAddressing.delete(slotHashes, slots, slot);
+        count--;
+    }
+
+    public void clear() {
+        Arrays.fill(slots, 0);
+        leastRecent = NIL;
+        mostRecent = NIL;
+        freeNodes = NIL;
+        usedNodes = 0;
+        count = 0;
+    }
+
+    /**
+     * Cantidad de entradas seguidas
+     */
+    public int size() {
+        return count;
+    }
+
     @Override
     public boolean shouldEvict(int currentSize, int newEntrySize, int capacity) {
         return currentSize + newEntrySize > capacity;
     }
-    
+
     @Override
     public int calculateEntriesToEvict(int currentSize, int newEntrySize, int capacity) {
-        if (!shouldEvict(currentSize, newEntrySize, capacity)) {
-            return 0;
-        }
-        
-        // En LRU, podríamos evictar múltiples entradas de una vez
-        // basado en el patrón de acceso
-        int spaceNeeded = currentSize + newEntrySize - capacity;
-        if (spaceNeeded > 0) {
-            // Calcular cuántas entradas aproximadamente necesitamos evictar
-            // Esto es una simplificación - en implementación real se calcularía basado en tamaños reales
-            return Math.max(1, (spaceNeeded / 1024) + 1); // Asumiendo tamaño promedio de 1KB
-        }
-        return 1;
+        // Sin los tamaños de las entradas solo se puede avanzar de a una;
+        // entriesToEvict calcula la cantidad exacta
+        return shouldEvict(currentSize, newEntrySize, capacity) ? 1 : 0;
     }
-    
+
     @Override
     public String getPolicyName() {
         return "LRU";
     }
-    
+
     /**
      * Obtiene la entrada menos recientemente usada
      */
     public Integer getLRUEntry() {
-        return accessOrder.entrySet().stream()
-            .min(Map.Entry.comparingByValue())
-            .map(Map.Entry::getKey)
-            .orElse(null);
+        return leastRecent == NIL ? null : keys[leastRecent];
+    }
+
+    private int newNode(int key) {
+        int node;
+        if (freeNodes != NIL) {
+            node = freeNodes;
+            freeNodes = older[node];
+        } else {
+            if (usedNodes == keys.length) {
+                allocateNodes(keys.length << 1);
+            }
+            node = usedNodes++;
+        }
+        keys[node] = key;
+        return node;
+    }
+
+    private void append(int node) {
+        older[node] = mostRecent;
+        newer[node] = NIL;
+        if (mostRecent != NIL) {
+            newer[mostRecent] = node;
+        } else {
+            leastRecent = node;
+        }
+        mostRecent = node;
+    }
+
+    private void unlink(int node) {
+        if (older[node] != NIL) {
+            newer[older[node]] = newer[node];
+        } else {
+            leastRecent = newer[node];
+        }
+        if (newer[node] != NIL) {
+            older[newer[node]] = older[node];
+        } else {
+            mostRecent = older[node];
+        }
+    }
+
+    /**
+     * Slot de la clave, o el slot vacío donde iría
+     */
+    private int find(int key, int h) {
+        int i = h & mask;
+        while (slots[i] != 0 && keys[slots[i] - 1] != key) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    private void allocateNodes(int capacity) {
+        keys = keys == null ? new int[capacity] : Arrays.copyOf(keys, capacity);
+        older = older == null ? new int[capacity] : Arrays.copyOf(older, capacity);
+        newer = newer == null ? new int[capacity] : Arrays.copyOf(newer, capacity);
+    }
+
+    private void allocateSlots(int capacity) {
+        int[] oldHashes = slotHashes;
+        int[] oldSlots = slots;
+        slotHashes = new int[capacity];
+        slots = new int[capacity];
+        mask = capacity - 1;
+        if (oldSlots != null) {
+            OpenAddressing.rehash(oldHashes, oldSlots, slotHashes, slots);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,9 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Listener que recibe los valores sin decodificar; ver LazyHeaderValue.
+ * El nombre siempre llega decodificado.
+ */
+public interface LazyHeaderListener {
+    void addHeader(byte[] name, LazyHeaderValue value, boolean sensitive);
+}
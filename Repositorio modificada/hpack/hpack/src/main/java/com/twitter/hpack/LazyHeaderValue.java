@@ -0,0 +1,51 @@
+package main.java.com.twitter.hpack;
+
+import java.io.IOException;
+
+/**
+ * Valor de header tal como llego en el bloque: los bytes del literal y si
+ * estan codificados en Huffman. Se decodifica recien en el primer
+ * getValue() y el resultado queda cacheado, asi que un valor que solo se
+ * reenvia nunca se decodifica. No es thread-safe; los arrays devueltos no
+ * deben modificarse.
+ */
+public final class LazyHeaderValue {
+    private final byte[] encoded;
+    private final boolean huffmanEncoded;
+    private byte[] decoded;
+
+    LazyHeaderValue(byte[] encoded, boolean huffmanEncoded) {
+        this(encoded, huffmanEncoded, huffmanEncoded ? null : encoded);
+    }
+
+    LazyHeaderValue(byte[] encoded, boolean huffmanEncoded, byte[] decoded) {
+        this.encoded = HpackUtil.requireNonNull(encoded);
+        this.huffmanEncoded = huffmanEncoded;
+        this.decoded = decoded;
+    }
+
+    /**
+     * Bytes del literal sin decodificar, para reenviarlos tal cual
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    public boolean isHuffmanEncoded() {
+        return huffmanEncoded;
+    }
+
+    public boolean isDecoded() {
+        return decoded != null;
+    }
+
+    /**
+     * Valor decodificado. Un literal Huffman invalido recien se detecta aca.
+     */
+    public byte[] getValue() throws IOException {
+        if (decoded == null) {
+            decoded = Huffman.DECODER.decode(encoded);
+        }
+        return decoded;
+    }
+}
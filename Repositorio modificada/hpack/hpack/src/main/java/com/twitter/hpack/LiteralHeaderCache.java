@@ -0,0 +1,254 @@
+package main.java.com.twitter.hpack;
+
+import java.util.Arrays;
+
+/**
+ * Cache acotada de la representación ya codificada de headers literales
+ * que no se indexan (sensibles, o con el indexing desactivado). Asocia
+ * (nombre, valor, representación) con los bytes tal como salen al cable,
+ * de modo que un acierto es una sola copia en lugar de volver a medir y
+ * codificar en Huffman nombre y valor.
+ *
+ * Los bytes guardados no dependen de la tabla dinámica: cuando el nombre
+ * está en ella solo se reescribe el prefijo con el índice y se copia el
+ * valor ya codificado.
+ *
+ * Una instancia mutable pertenece a un único Encoder y desaloja las
+ * entradas menos usadas cuando el tamaño supera el máximo. readOnlyCopy()
+ * devuelve una copia congelada que pueden compartir varios Encoders (y
+ * varios hilos) con la misma configuración de Huffman.
+ */
+public final class LiteralHeaderCache {
+    /**
+     * Costo fijo estimado de cada entrada (objeto, arrays, enlaces)
+     */
+    static final int ENTRY_OVERHEAD = 64;
+
+    private static final int INITIAL_BUCKETS = 16;
+    private static final int MODE_UNBOUND = -1;
+
+    static final class Entry {
+        final byte[] name;
+        final byte[] value;
+        final int representation;
+        final int hash;
+        final byte[] encoded;
+        final int valueOffset;
+
+        Entry nextInBucket;
+        Entry newer;
+        Entry older;
+
+        Entry(byte[] name, byte[] value, int representation, int hash, byte[] encoded, int valueOffset) {
+            this.name = name;
+            this.value = value;
+            this.representation = representation;
+            this.hash = hash;
+            this.encoded = encoded;
+            this.valueOffset = valueOffset;
+        }
+
+        int size() {
+            return name.length + value.length + encoded.length + ENTRY_OVERHEAD;
+        }
+    }
+
+    private final int maxSize;
+    private final boolean readOnly;
+    private Entry[] buckets;
+    private Entry newest;
+    private Entry oldest;
+    private int count;
+    private int size;
+    private int mode = MODE_UNBOUND;
+
+    /**
+     * @param maxSize tamaño máximo en bytes, contando nombre, valor,
+     *                representación codificada y ENTRY_OVERHEAD por entrada
+     */
+    public LiteralHeaderCache(int maxSize) {
+        this(maxSize, false);
+    }
+
+    private LiteralHeaderCache(int maxSize, boolean readOnly) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("Illegal Capacity: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.readOnly = readOnly;
+        this.buckets = new Entry[INITIAL_BUCKETS];
+    }
+
+    /**
+     * Copia congelada con las entradas actuales: las búsquedas no la
+     * modifican y las entradas nuevas no se guardan.
+     */
+    public LiteralHeaderCache readOnlyCopy() {
+        LiteralHeaderCache copy = new LiteralHeaderCache(maxSize, true);
+        copy.mode = mode;
+        for (Entry e = oldest; e != null; e = e.newer) {
+            copy.link(new Entry(e.name, e.value, e.representation, e.hash, e.encoded, e.valueOffset));
+        }
+        return copy;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Bytes ocupados por las entradas
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Cantidad de entradas
+     */
+    public int length() {
+        return count;
+    }
+
+    public void clear() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("read-only cache");
+        }
+        Arrays.fill(buckets, null);
+        newest = null;
+        oldest = null;
+        count = 0;
+        size = 0;
+    }
+
+    /**
+     * Asocia la cache a la configuración de Huffman del Encoder que la usa:
+     * los bytes guardados solo sirven para esa configuración.
+     */
+    void bind(boolean forceHuffmanOn, boolean forceHuffmanOff) {
+        // forceHuffmanOn gana sobre forceHuffmanOff: ambos dan los mismos bytes
+        int encoderMode = forceHuffmanOn ? 1 : forceHuffmanOff ? 2 : 0;
+        if (mode == MODE_UNBOUND && !readOnly) {
+            mode = encoderMode;
+        } else if (mode != encoderMode && !(readOnly && mode == MODE_UNBOUND)) {
+            throw new IllegalArgumentException("cache filled with a different Huffman configuration");
+        }
+    }
+
+    /**
+     * Devuelve la entrada para la clave, o null. En la cache mutable un
+     * acierto la marca como la más reciente.
+     */
+    Entry find(byte[] name, byte[] value, int representation) {
+        int h = hash(name, value, representation);
+        for (Entry e = buckets[h & (buckets.length - 1)]; e != null; e = e.nextInBucket) {
+            if (e.hash == h && e.representation == representation
+                && HpackUtil.equals(name, e.name) && HpackUtil.equals(value, e.value)) {
+                if (!readOnly && e != newest) {
+                    unlinkFromList(e);
+                    appendToList(e);
+                }
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Guarda una copia de encoded[0, length) para la clave, desalojando las
+     * entradas menos usadas. Devuelve null si la cache es de solo lectura o
+     * la entrada no entra.
+     */
+    Entry put(byte[] name, byte[] value, int representation, byte[] encoded, int length, int valueOffset) {
+        if (readOnly) {
+            return null;
+        }
+        int entrySize = name.length + value.length + length + ENTRY_OVERHEAD;
+        if (entrySize > maxSize) {
+            return null;
+        }
+        while (size + entrySize > maxSize) {
+            evict(oldest);
+        }
+        Entry entry = new Entry(Arrays.copyOf(name, name.length), Arrays.copyOf(value, value.length),
+            representation, hash(name, value, representation), Arrays.copyOf(encoded, length), valueOffset);
+        link(entry);
+        return entry;
+    }
+
+    private void link(Entry entry) {
+        if (count >= buckets.length) {
+            rehash(buckets.length << 1);
+        }
+        int i = entry.hash & (buckets.length - 1);
+        entry.nextInBucket = buckets[i];
+        buckets[i] = entry;
+        appendToList(entry);
+        count++;
+        size += entry.size();
+    }
+
+    private void evict(Entry entry) {
+        int i = entry.hash & (buckets.length - 1);
+        if (buckets[i] == entry) {
+            buckets[i] = entry.nextInBucket;
+        } else {
+            Entry prev = buckets[i];
+            while (prev.nextInBucket != entry) {
+                prev = prev.nextInBucket;
+            }
+            prev.nextInBucket = entry.nextInBucket;
+        }
+        unlinkFromList(entry);
+        count--;
+        size -= entry.size();
+    }
+
+    private void appendToList(Entry entry) {
+        entry.older = newest;
+        entry.newer = null;
+        if (newest != null) {
+            newest.newer = entry;
+        } else {
+            oldest = entry;
+        }
+        newest = entry;
+    }
+
+    private void unlinkFromList(Entry entry) {
+        if (entry.older != null) {
+            entry.older.newer = entry.newer;
+        } else {
+            oldest = entry.newer;
+        }
+        if (entry.newer != null) {
+            entry.newer.older = entry.older;
+        } else {
+            newest = entry.older;
+        }
+        entry.newer = null;
+        entry.older = null;
+    }
+
+    private void rehash(int capacity) {
+        Entry[] old = buckets;
+        buckets = new Entry[capacity];
+        for (Entry head : old) {
+            for (Entry e = head; e != null; ) {
+                Entry next = e.nextInBucket;
+                int i = e.hash & (capacity - 1);
+                e.nextInBucket = buckets[i];
+                buckets[i] = e;
+                e = next;
+            }
+        }
+    }
+
+    private static int hash(byte[] name, byte[] value, int representation) {
+        return OpenAddressing.mix(31 * HpackUtil.hash(name, value) + representation);
+    }
+}
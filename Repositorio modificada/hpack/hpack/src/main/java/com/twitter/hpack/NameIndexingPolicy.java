@@ -0,0 +1,48 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Política de admisión por reglas de nombre: los headers cuyo nombre está
+ * en la lista nunca se indexan (valores que no se repiten, como
+ * x-request-id); para el resto decide la política de respaldo.
+ */
+public class NameIndexingPolicy implements IndexingPolicy {
+    /**
+     * Nombres habituales con un valor distinto en cada mensaje. date,
+     * content-length o etag no están: se repiten por segundo o por recurso
+     * y conviene que los decida FrequencyIndexingPolicy.
+     */
+    public static final String[] HIGH_CARDINALITY_NAMES = {
+        "set-cookie", "x-request-id", "x-correlation-id", "traceparent"
+    };
+    
+    private final byte[][] notIndexed;
+    private final IndexingPolicy fallback;
+    
+    public NameIndexingPolicy(String... notIndexedNames) {
+        this(new DefaultIndexingPolicy(), notIndexedNames);
+    }
+    
+    public NameIndexingPolicy(IndexingPolicy fallback, String... notIndexedNames) {
+        this.fallback = HpackUtil.requireNonNull(fallback);
+        this.notIndexed = new byte[notIndexedNames.length][];
+        for (int i = 0; i < notIndexedNames.length; i++) {
+            notIndexed[i] = notIndexedNames[i].getBytes(HpackUtil.ISO_8859_1);
+        }
+    }
+    
+    @Override
+    public boolean shouldIndex(byte[] name, byte[] value) {
+        // Las listas son cortas: una recorrida lineal sin objetos alcanza
+        for (byte[] notIndexedName : notIndexed) {
+            if (HpackUtil.equals(name, notIndexedName)) {
+                return false;
+            }
+        }
+        return fallback.shouldIndex(name, value);
+    }
+    
+    @Override
+    public String getPolicyName() {
+        return "NAME(" + fallback.getPolicyName() + ")";
+    }
+}
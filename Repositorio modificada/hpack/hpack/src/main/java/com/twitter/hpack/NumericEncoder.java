@@ -25,6 +25,45 @@ public class NumericEncoder {
         }
     }
     
+    /**
+     * Escribe i directamente en dst a partir de off y devuelve la cantidad
+     * de bytes escritos (ver getEncodedLength)
+     */
+    public int encodeInteger(byte[] dst, int off, int mask, int n, int i) {
+        if (n < 0 || n > 8) {
+            throw new IllegalArgumentException("N: " + n);
+        }
+        int pos = off;
+        int nbits = 0xFF >>> (8 - n);
+        if (i < nbits) {
+            dst[pos++] = (byte) (mask | i);
+        } else {
+            dst[pos++] = (byte) (mask | nbits);
+            int length = i - nbits;
+            while ((length & ~0x7F) != 0) {
+                dst[pos++] = (byte) ((length & 0x7F) | 0x80);
+                length >>>= 7;
+            }
+            dst[pos++] = (byte) length;
+        }
+        return pos - off;
+    }
+    
+    /**
+     * Cantidad de bytes que ocupa i codificado con un prefijo de n bits
+     */
+    public static int getEncodedLength(int n, int i) {
+        int nbits = 0xFF >>> (8 - n);
+        if (i < nbits) {
+            return 1;
+        }
+        int length = 2;
+        for (int rest = (i - nbits) >>> 7; rest != 0; rest >>>= 7) {
+            length++;
+        }
+        return length;
+    }
+    
     public void encodeInteger(OutputStream out, int mask, int n, int i) throws IOException {
         encodeInteger(new OutputStreamByteSink(out), mask, n, i);
     }
@@ -0,0 +1,64 @@
+package main.java.com.twitter.hpack;
+
+/**
+ * Operaciones comunes de las tablas hash de direccionamiento abierto (sondeo
+ * lineal) sobre arrays de int, como HeaderFieldIndex y LRUEvictionPolicy.
+ * Cada slot guarda el hash de la clave en hashes y un valor en values, con
+ * 0 como slot vacío; el largo de los arrays es potencia de 2.
+ */
+final class OpenAddressing {
+
+    /**
+     * Mezcla los bits altos en los bajos, que son los que elige la máscara
+     */
+    static int mix(int h) {
+        h *= 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Vacía el slot i con desplazamiento hacia atrás: sin lápidas, las
+     * búsquedas siguen cortando en el primer slot vacío
+     */
+    static void delete(int[] hashes, int[] values, int i) {
+        int mask = values.length - 1;
+        int j = i;
+        while (true) {
+            j = (j + 1) & mask;
+            if (values[j] == 0) {
+                break;
+            }
+            int home = hashes[j] & mask;
+            boolean inRange = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!inRange) {
+                hashes[i] = hashes[j];
+                values[i] = values[j];
+                i = j;
+            }
+        }
+        hashes[i] = 0;
+        values[i] = 0;
+    }
+
+    /**
+     * Reubica los slots ocupados de oldHashes/oldValues en hashes/values,
+     * que tienen que estar vacíos
+     */
+    static void rehash(int[] oldHashes, int[] oldValues, int[] hashes, int[] values) {
+        int mask = values.length - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != 0) {
+                int i = oldHashes[j] & mask;
+                while (values[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                hashes[i] = oldHashes[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+
+    private OpenAddressing() {
+        // utility class
+    }
+}
@@ -117,8 +117,8 @@ public class StandardHuffmanDecoder implements HuffmanDecoder {
     }
 } 
  */
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class StandardHuffmanDecoder implements HuffmanDecoder {
     private static final IOException EOS_DECODED = new IOException("EOS Decoded");
@@ -130,19 +130,41 @@ public class StandardHuffmanDecoder implements HuffmanDecoder {
         if (codes.length != 257 || codes.length != lengths.length) {
             throw new IllegalArgumentException("invalid Huffman coding");
         }
-        this.root = buildTree(codes, lengths);
+        this.root = codes == HpackUtil.HUFFMAN_CODES && lengths == HpackUtil.HUFFMAN_CODE_LENGTHS
+            ? RfcTree.ROOT
+            : buildTree(codes, lengths);
+    }
+    
+    /**
+     * Árbol del código del RFC: se construye una sola vez por JVM y lo
+     * comparten todas las instancias. No se modifica después de armado.
+     */
+    private static final class RfcTree {
+        static final HuffmanNode ROOT = buildTree(HpackUtil.HUFFMAN_CODES, HpackUtil.HUFFMAN_CODE_LENGTHS);
     }
     
     @Override
     public byte[] decode(byte[] buf) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte[] out = new byte[Huffman.getMaxDecodedLength(buf.length)];
+        int written = decode(buf, 0, buf.length, out, 0);
+        return written == out.length ? out : Arrays.copyOf(out, written);
+    }
+    
+    @Override
+    public int decode(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) throws IOException {
+        if (srcOff < 0 || srcLen < 0 || srcOff > src.length - srcLen) {
+            throw new IndexOutOfBoundsException();
+        } else if (dstOff < 0 || dstOff > dst.length - Huffman.getMaxDecodedLength(srcLen)) {
+            throw new IndexOutOfBoundsException();
+        }
+        int pos = dstOff;
         
         HuffmanNode currentNode = root;
         int current = 0;
         int bits = 0;
         
-        for (int i = 0; i < buf.length; i++) {
-            int b = buf[i] & 0xFF;
+        for (int i = srcOff; i < srcOff + srcLen; i++) {
+            int b = src[i] & 0xFF;
             current = (current << 8) | b;
             bits += 8;
             
@@ -155,7 +177,7 @@ public class StandardHuffmanDecoder implements HuffmanDecoder {
                     if (currentNode.getSymbol() == HpackUtil.HUFFMAN_EOS) {
                         throw EOS_DECODED;
                     }
-                    baos.write(currentNode.getSymbol());
+                    dst[pos++] = (byte) currentNode.getSymbol();
                     currentNode = root;
                 }
             }
@@ -168,7 +190,7 @@ public class StandardHuffmanDecoder implements HuffmanDecoder {
             
             if (nextNode.isTerminal() && nextNode.getDepth() <= bits) {
                 bits -= nextNode.getDepth();
-                baos.write(nextNode.getSymbol());
+                dst[pos++] = (byte) nextNode.getSymbol();
                 currentNode = root;
             } else {
                 break;
@@ -181,10 +203,10 @@ public class StandardHuffmanDecoder implements HuffmanDecoder {
             throw INVALID_PADDING;
         }
         
-        return baos.toByteArray();
+        return pos - dstOff;
     }
     
-    private HuffmanNode buildTree(int[] codes, byte[] lengths) {
+    private static HuffmanNode buildTree(int[] codes, byte[] lengths) {
         StandardHuffmanNode root = new StandardHuffmanNode();
         
         for (int i = 0; i < codes.length; i++) {
@@ -194,7 +216,7 @@ public class StandardHuffmanDecoder implements HuffmanDecoder {
         return root;
     }
     
-    private void insert(StandardHuffmanNode root, int symbol, int code, byte length) {
+    private static void insert(StandardHuffmanNode root, int symbol, int code, byte length) {
         StandardHuffmanNode current = root;
         
         // Navegar por los bits más significativos
@@ -2,8 +2,16 @@ package main.java.com.twitter.hpack;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 public class StandardHuffmanEncoder implements HuffmanEncoder {
+    private static final VarHandle INT_BIG_ENDIAN =
+        MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    
     private final int[] codes;
     private final byte[] lengths;
     
@@ -19,6 +27,18 @@ public class StandardHuffmanEncoder implements HuffmanEncoder {
     
     @Override
     public void encode(OutputStream out, byte[] data, int off, int len) throws IOException {
+        if (out == null) {
+            throw new NullPointerException("out");
+        }
+        encode(new OutputStreamByteSink(out), data, off, len);
+    }
+    
+    /**
+     * Variante sin adaptadores: escribe en el ByteSink sin pasar por un
+     * OutputStream ni copiar el slice.
+     */
+    @Override
+    public void encode(ByteSink out, byte[] data, int off, int len) throws IOException {
         if (out == null) {
             throw new NullPointerException("out");
         } else if (data == null) {
@@ -54,6 +74,160 @@ public class StandardHuffmanEncoder implements HuffmanEncoder {
         }
     }
     
+    /**
+     * Acumula los códigos en un long y vuelca de a 4 bytes por escritura.
+     * Los códigos miden como mucho 30 bits, así que con menos de 32 bits
+     * pendientes siempre cabe el siguiente símbolo.
+     *
+     * No hay camino aparte para ASCII: los imprimibles van de 5 a 19 bits
+     * ('\'), y tanto una tabla compacta de 128 entradas como un acumulador
+     * de 32 bits con volcado por byte midieron igual o más lento que este
+     * bucle con valores ASCII.
+     */
+    @Override
+    public void encode(byte[] dst, int dstOff, byte[] data, int encodedLength) {
+        if (dst == null) {
+            throw new NullPointerException("dst");
+        } else if (data == null) {
+            throw new NullPointerException("data");
+        } else if (dstOff < 0 || encodedLength < 0 || dstOff > dst.length - encodedLength) {
+            throw new IndexOutOfBoundsException();
+        }
+        
+        long current = 0;
+        int n = 0;
+        int pos = dstOff;
+        
+        for (int i = 0; i < data.length; i++) {
+            int b = data[i] & 0xFF;
+            int nbits = lengths[b];
+            current = (current << nbits) | codes[b];
+            n += nbits;
+            
+            if (n >= 32) {
+                n -= 32;
+                INT_BIG_ENDIAN.set(dst, pos, (int) (current >>> n));
+                pos += 4;
+            }
+        }
+        
+        // Completar con los bits más significativos de EOS (unos)
+        int padding = (8 - (n & 7)) & 7;
+        current = (current << padding) | ((1L << padding) - 1);
+        n += padding;
+        while (n > 0) {
+            n -= 8;
+            dst[pos++] = (byte) (current >>> n);
+        }
+        
+        if (pos - dstOff != encodedLength) {
+            throw new IllegalArgumentException("encodedLength: " + encodedLength);
+        }
+    }
+    
+    @Override
+    public int encodeIfShorter(byte[] dst, int dstOff, byte[] data, int limit) {
+        if (dst == null) {
+            throw new NullPointerException("dst");
+        } else if (data == null) {
+            throw new NullPointerException("data");
+        } else if (limit <= 0) {
+            return -1;
+        } else if (dstOff < 0 || dstOff > dst.length - (limit - 1)) {
+            throw new IndexOutOfBoundsException();
+        }
+        
+        // Como mucho limit - 1 bytes, contando el padding
+        long maxBits = (long) (limit - 1) << 3;
+        long totalBits = 0;
+        long current = 0;
+        int n = 0;
+        int pos = dstOff;
+        
+        for (int i = 0; i < data.length; i++) {
+            int b = data[i] & 0xFF;
+            int nbits = lengths[b];
+            totalBits += nbits;
+            if (totalBits > maxBits) {
+                return -1;
+            }
+            current = (current << nbits) | codes[b];
+            n += nbits;
+            
+            if (n >= 32) {
+                n -= 32;
+                INT_BIG_ENDIAN.set(dst, pos, (int) (current >>> n));
+                pos += 4;
+            }
+        }
+        
+        int padding = (8 - (n & 7)) & 7;
+        current = (current << padding) | ((1L << padding) - 1);
+        n += padding;
+        while (n > 0) {
+            n -= 8;
+            dst[pos++] = (byte) (current >>> n);
+        }
+        return pos - dstOff;
+    }
+    
+    @Override
+    public void encode(ByteBuffer dst, byte[] data, int encodedLength) {
+        if (dst.hasArray()) {
+            int position = dst.position();
+            if (dst.remaining() < encodedLength) {
+                throw new BufferOverflowException();
+            }
+            encode(dst.array(), dst.arrayOffset() + position, data, encodedLength);
+            dst.position(position + encodedLength);
+            return;
+        }
+        
+        if (data == null) {
+            throw new NullPointerException("data");
+        } else if (dst.remaining() < encodedLength) {
+            throw new BufferOverflowException();
+        }
+        
+        boolean bigEndian = dst.order() == ByteOrder.BIG_ENDIAN;
+        long current = 0;
+        int n = 0;
+        int start = dst.position();
+        int pos = start;
+        
+        for (int i = 0; i < data.length; i++) {
+            int b = data[i] & 0xFF;
+            int nbits = lengths[b];
+            current = (current << nbits) | codes[b];
+            n += nbits;
+            
+            if (n >= 32) {
+                n -= 32;
+                int word = (int) (current >>> n);
+                dst.putInt(pos, bigEndian ? word : Integer.reverseBytes(word));
+                pos += 4;
+            }
+        }
+        
+        int padding = (8 - (n & 7)) & 7;
+        current = (current << padding) | ((1L << padding) - 1);
+        n += padding;
+        while (n > 0) {
+            n -= 8;
+            dst.put(pos++, (byte) (current >>> n));
+        }
+        
+        if (pos - start != encodedLength) {
+            throw new IllegalArgumentException("encodedLength: " + encodedLength);
+        }
+        dst.position(pos);
+    }
+    
+    /**
+     * Bucle escalar a propósito: una versión con gather de la Vector API
+     * (incubadora) midió más lenta que este bucle incluso con 512 bits, y
+     * StringEncoder por defecto ya no lo llama (ver encodeIfShorter).
+     */
     @Override
     public int getEncodedLength(byte[] data) {
         if (data == null) {
@@ -1,8 +1,11 @@
 package main.java.com.twitter.hpack;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 public class StateMachineDecoder {
+    private static final byte[] EMPTY = new byte[0];
+    
     private final HeaderTableManager tableManager;
     private final HuffmanStringProcessor stringProcessor;
     private final HeaderValidator validator;
@@ -17,6 +20,23 @@ public class StateMachineDecoder {
     private int valueLength;
     private byte[] name;
     
+    // Progreso del valor literal en curso, que puede llegar en varios fragmentos
+    private int valueRead;
+    private int valueWritten;
+    
+    // Listener del bloque en curso: solo uno es distinto de null
+    private HeaderListener headerListener;
+    private HeaderSliceListener sliceListener;
+    private HeaderStreamListener streamListener;
+    private LazyHeaderListener lazyListener;
+    
+    // Bytes sin decodificar del valor en curso en el modo perezoso
+    private byte[] lazyValue;
+    
+    // Buffers propios reutilizados por el modo de vistas (HeaderSliceListener)
+    private byte[] nameScratch = EMPTY;
+    private byte[] valueScratch = EMPTY;
+    
     private enum State {
         READ_HEADER_REPRESENTATION,
         READ_MAX_DYNAMIC_TABLE_SIZE,
@@ -46,20 +66,80 @@ public class StateMachineDecoder {
         validator.reset();
         state = State.READ_HEADER_REPRESENTATION;
         indexType = HpackUtil.IndexType.NONE;
-        name = new byte[0];
+        name = EMPTY;
+        nameLength = 0;
+        stringProcessor.reset();
+    }
+    
+    /**
+     * Suelta los buffers de trabajo, que crecen hasta el literal mas largo
+     * visto, para que un decoder inactivo no los retenga. Se vuelven a
+     * crear a demanda.
+     */
+    public void releaseBuffers() {
+        nameScratch = EMPTY;
+        valueScratch = EMPTY;
+        lazyValue = null;
+        stringProcessor.releaseBuffers();
     }
     
     public void decode(ByteSource in, HeaderListener headerListener) throws IOException {
-        while (in.available() > 0) {
+        this.headerListener = HpackUtil.requireNonNull(headerListener);
+        this.sliceListener = null;
+        this.streamListener = null;
+        this.lazyListener = null;
+        decode(in);
+    }
+    
+    /**
+     * Decodifica entregando nombre y valor como vistas sobre buffers propios
+     * del decodificador, sin reservar arrays por header.
+     */
+    public void decode(ByteSource in, HeaderSliceListener sliceListener) throws IOException {
+        this.headerListener = null;
+        this.sliceListener = HpackUtil.requireNonNull(sliceListener);
+        this.streamListener = null;
+        this.lazyListener = null;
+        decode(in);
+    }
+    
+    /**
+     * Decodifica entregando los valores literales en trozos a medida que
+     * llegan sus bytes, sin esperar al fragmento que los completa.
+     */
+    public void decode(ByteSource in, HeaderStreamListener streamListener) throws IOException {
+        this.headerListener = null;
+        this.sliceListener = null;
+        this.streamListener = HpackUtil.requireNonNull(streamListener);
+        this.lazyListener = null;
+        decode(in);
+    }
+    
+    /**
+     * Decodifica entregando los valores sin decodificar: cada valor se
+     * decodifica recien cuando el listener lo lee. Los que se agregan a la
+     * tabla dinamica igual se decodifican al llegar.
+     */
+    public void decodeLazy(ByteSource in, LazyHeaderListener lazyListener) throws IOException {
+        this.headerListener = null;
+        this.sliceListener = null;
+        this.streamListener = null;
+        this.lazyListener = HpackUtil.requireNonNull(lazyListener);
+        decode(in);
+    }
+    
+    private void decode(ByteSource in) throws IOException {
+        int available;
+        while ((available = in.available()) > 0) {
             switch(state) {
                 case READ_HEADER_REPRESENTATION:
-                    readHeaderRepresentation(in, headerListener);
+                    readHeaderRepresentation(in);
                     break;
                 case READ_MAX_DYNAMIC_TABLE_SIZE:
                     readMaxDynamicTableSize(in);
                     break;
                 case READ_INDEXED_HEADER:
-                    readIndexedHeader(in, headerListener);
+                    readIndexedHeader(in);
                     break;
                 case READ_INDEXED_HEADER_NAME:
                     readIndexedHeaderName(in);
@@ -77,13 +157,13 @@ public class StateMachineDecoder {
                     skipLiteralHeaderName(in);
                     break;
                 case READ_LITERAL_HEADER_VALUE_LENGTH_PREFIX:
-                    readLiteralHeaderValueLengthPrefix(in, headerListener);
+                    readLiteralHeaderValueLengthPrefix(in);
                     break;
                 case READ_LITERAL_HEADER_VALUE_LENGTH:
                     readLiteralHeaderValueLength(in);
                     break;
                 case READ_LITERAL_HEADER_VALUE:
-                    readLiteralHeaderValue(in, headerListener);
+                    readLiteralHeaderValue(in);
                     break;
                 case SKIP_LITERAL_HEADER_VALUE:
                     skipLiteralHeaderValue(in);
@@ -91,10 +171,14 @@ public class StateMachineDecoder {
                 default:
                     throw new IllegalStateException("should not reach here");
             }
+            // Sin progreso: faltan bytes, se espera el siguiente fragmento
+            if (in.available() == available) {
+                return;
+            }
         }
     }
     
-    private void readHeaderRepresentation(ByteSource in, HeaderListener headerListener) throws IOException {
+    private void readHeaderRepresentation(ByteSource in) throws IOException {
         byte b = (byte) in.read();
         
         if (b < 0) {
@@ -105,7 +189,7 @@ public class StateMachineDecoder {
             } else if (index == 0x7F) {
                 state = State.READ_INDEXED_HEADER;
             } else {
-                tableManager.indexHeader(index, headerListener);
+                indexHeader(index);
                 state = State.READ_HEADER_REPRESENTATION;
             }
         } else if ((b & 0x40) == 0x40) {
@@ -142,10 +226,8 @@ public class StateMachineDecoder {
     }
     
     private void readName(int index) throws IOException {
-        byte[] nameBuffer = new byte[1024]; // Tamaño suficiente para nombres de header
-        tableManager.readName(index, nameBuffer);
-        // En una implementación real, necesitaríamos manejar el tamaño dinámicamente
-        this.name = nameBuffer;
+        this.name = tableManager.readName(index);
+        this.nameLength = name.length;
     }
     
     private void readMaxDynamicTableSize(ByteSource in) throws IOException {
@@ -164,7 +246,7 @@ public class StateMachineDecoder {
         tableManager.getDynamicTable().setCapacity(size);
     }
     
-    private void readIndexedHeader(ByteSource in, HeaderListener headerListener) throws IOException {
+    private void readIndexedHeader(ByteSource in) throws IOException {
         int headerIndex = uleb128Decoder.decode(in);
         if (headerIndex == -1) return;
         
@@ -172,7 +254,7 @@ public class StateMachineDecoder {
             throw new IOException("decompression failure");
         }
         
-        tableManager.indexHeader(index + headerIndex, headerListener);
+        indexHeader(index + headerIndex);
         state = State.READ_HEADER_REPRESENTATION;
     }
     
@@ -233,7 +315,14 @@ public class StateMachineDecoder {
     private void readLiteralHeaderName(ByteSource in) throws IOException {
         if (in.available() < nameLength) return;
         
-        name = stringProcessor.readStringLiteral(in, nameLength, huffmanEncoded);
+        if (sliceListener != null || streamListener != null) {
+            nameScratch = ensureCapacity(nameScratch, stringProcessor.maxDecodedLength(nameLength, huffmanEncoded));
+            nameLength = stringProcessor.readStringLiteral(in, nameLength, huffmanEncoded, nameScratch);
+            name = nameScratch;
+        } else {
+            name = stringProcessor.readStringLiteral(in, nameLength, huffmanEncoded);
+            nameLength = name.length;
+        }
         state = State.READ_LITERAL_HEADER_VALUE_LENGTH_PREFIX;
     }
     
@@ -244,7 +333,7 @@ public class StateMachineDecoder {
         }
     }
     
-    private void readLiteralHeaderValueLengthPrefix(ByteSource in, HeaderListener headerListener) throws IOException {
+    private void readLiteralHeaderValueLengthPrefix(ByteSource in) throws IOException {
         byte b = (byte) in.read();
         huffmanEncoded = (b & 0x80) == 0x80;
         index = b & 0x7F;
@@ -252,7 +341,7 @@ public class StateMachineDecoder {
             state = State.READ_LITERAL_HEADER_VALUE_LENGTH;
         } else {
             valueLength = index;
-            processValueLength(headerListener);
+            processValueLength();
         }
     }
     
@@ -264,11 +353,11 @@ public class StateMachineDecoder {
             throw new IOException("decompression failure");
         }
         valueLength += index;
-        processValueLength(null);
+        processValueLength();
     }
     
-    private void processValueLength(HeaderListener headerListener) throws IOException {
-        long newHeaderSize = (long) name.length + (long) valueLength;
+    private void processValueLength() throws IOException {
+        long newHeaderSize = (long) nameLength + (long) valueLength;
         if (validator.exceedsMaxHeaderSize(newHeaderSize)) {
             if (indexType == HpackUtil.IndexType.NONE) {
                 state = State.SKIP_LITERAL_HEADER_VALUE;
@@ -276,19 +365,86 @@ public class StateMachineDecoder {
                 tableManager.getDynamicTable().clear();
                 state = State.SKIP_LITERAL_HEADER_VALUE;
             }
-        } else if (valueLength == 0 && headerListener != null) {
-            insertHeader(headerListener, name, new byte[0]);
-            state = State.READ_HEADER_REPRESENTATION;
         } else {
-            state = State.READ_LITERAL_HEADER_VALUE;
+            valueRead = 0;
+            valueWritten = 0;
+            if (streamListener != null) {
+                streamListener.startHeader(name, 0, nameLength, indexType == HpackUtil.IndexType.NEVER);
+            }
+            if (valueLength == 0) {
+                insertHeader(EMPTY, 0);
+                state = State.READ_HEADER_REPRESENTATION;
+            } else {
+                state = State.READ_LITERAL_HEADER_VALUE;
+            }
         }
     }
     
-    private void readLiteralHeaderValue(ByteSource in, HeaderListener headerListener) throws IOException {
-        if (in.available() < valueLength) return;
+    private void readLiteralHeaderValue(ByteSource in) throws IOException {
+        if (lazyListener != null) {
+            readLazyHeaderValue(in);
+            return;
+        }
+        
+        int remaining = valueLength - valueRead;
+        int length = Math.min(in.available(), remaining);
+        if (length < remaining && huffmanEncoded && !stringProcessor.isIncremental()) return;
         
-        byte[] value = stringProcessor.readStringLiteral(in, valueLength, huffmanEncoded);
-        insertHeader(headerListener, name, value);
+        // Sin indexar, el listener incremental no necesita el valor completo:
+        // cada trozo se decodifica al comienzo del buffer
+        boolean accumulate = streamListener == null || indexType == HpackUtil.IndexType.INCREMENTAL;
+        int offset;
+        if (accumulate) {
+            if (valueRead == 0) {
+                valueScratch = ensureCapacity(valueScratch, stringProcessor.maxDecodedLength(valueLength, huffmanEncoded));
+            }
+            offset = valueWritten;
+        } else {
+            int capacity = stringProcessor.maxDecodedLength(valueRead + length, huffmanEncoded) - valueWritten;
+            valueScratch = ensureCapacity(valueScratch, capacity);
+            offset = 0;
+        }
+        
+        int written = stringProcessor.readStringLiteralChunk(in, length, huffmanEncoded, valueScratch, offset);
+        if (streamListener != null && written > 0) {
+            streamListener.addValue(valueScratch, offset, written);
+        }
+        valueRead += length;
+        valueWritten += written;
+        if (valueRead < valueLength) return;
+        
+        stringProcessor.endStringLiteral(huffmanEncoded);
+        if (headerListener != null) {
+            insertHeader(Arrays.copyOf(valueScratch, valueWritten), valueWritten);
+        } else {
+            insertHeader(valueScratch, valueWritten);
+        }
+        state = State.READ_HEADER_REPRESENTATION;
+    }
+    
+    private void readLazyHeaderValue(ByteSource in) throws IOException {
+        if (valueRead == 0) {
+            lazyValue = new byte[valueLength];
+        }
+        int length = Math.min(in.available(), valueLength - valueRead);
+        if (in.read(lazyValue, valueRead, length) != length) {
+            throw new IOException("decompression failure");
+        }
+        valueRead += length;
+        if (valueRead < valueLength) return;
+        
+        LazyHeaderValue value = new LazyHeaderValue(lazyValue, huffmanEncoded);
+        lazyValue = null;
+        // La tabla guarda valores decodificados: se decodifica antes de
+        // entregarlo para que un literal invalido falle aca
+        byte[] decoded = indexType == HpackUtil.IndexType.INCREMENTAL ? value.getValue() : null;
+        
+        // Se contabiliza el tamaño recibido, que es lo que se retiene
+        validator.addHeaderSize(nameLength, valueLength);
+        lazyListener.addHeader(name, value, indexType == HpackUtil.IndexType.NEVER);
+        if (decoded != null) {
+            addToDynamicTable(decoded, decoded.length);
+        }
         state = State.READ_HEADER_REPRESENTATION;
     }
     
@@ -299,17 +455,54 @@ public class StateMachineDecoder {
         }
     }
     
-    private void insertHeader(HeaderListener headerListener, byte[] name, byte[] value) {
-        validator.addHeaderSize(name.length, value.length);
-        headerListener.addHeader(name, value, indexType == HpackUtil.IndexType.NEVER);
+    private void indexHeader(int index) throws IOException {
+        if (lazyListener != null) {
+            tableManager.indexHeaderLazy(index, lazyListener);
+        } else if (streamListener != null) {
+            tableManager.indexHeader(index, streamListener);
+        } else if (sliceListener != null) {
+            tableManager.indexHeader(index, sliceListener);
+        } else {
+            tableManager.indexHeader(index, headerListener);
+        }
+    }
+    
+    private void insertHeader(byte[] value, int valueLength) {
+        validator.addHeaderSize(nameLength, valueLength);
+        boolean sensitive = indexType == HpackUtil.IndexType.NEVER;
+        if (streamListener != null) {
+            // El comienzo y los trozos del valor ya se entregaron
+            streamListener.endHeader();
+        } else if (sliceListener != null) {
+            sliceListener.addHeader(name, 0, nameLength, value, 0, valueLength, sensitive);
+        } else if (lazyListener != null) {
+            lazyListener.addHeader(name, new LazyHeaderValue(value, false), sensitive);
+        } else {
+            headerListener.addHeader(name, value, sensitive);
+        }
         
         if (indexType == HpackUtil.IndexType.INCREMENTAL) {
-            try {
-                tableManager.getDynamicTable().add(new HeaderField(name, value));
-            } catch (IOException e) {
-                // Log the error but continue processing
-            }
+            addToDynamicTable(value, valueLength);
+        }
+    }
+    
+    private void addToDynamicTable(byte[] value, int valueLength) {
+        try {
+            // Los buffers de trabajo se reutilizan: la tabla necesita copias propias.
+            // Un nombre indexado ya es el array inmutable de la tabla.
+            byte[] entryName = name == nameScratch ? Arrays.copyOf(name, nameLength) : name;
+            byte[] entryValue = value == valueScratch ? Arrays.copyOf(value, valueLength) : value;
+            tableManager.getDynamicTable().add(new HeaderField(entryName, entryValue));
+        } catch (IOException e) {
+            // Log the error but continue processing
+        }
+    }
+    
+    private static byte[] ensureCapacity(byte[] buffer, int length) {
+        if (buffer.length >= length) {
+            return buffer;
         }
+        return new byte[Math.max(length, buffer.length << 1)];
     }
     
     public boolean endHeaderBlock() {
@@ -1,15 +1,25 @@
 package main.java.com.twitter.hpack;
 
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 public class StaticTable implements StaticHeaderTable {
     private static final String EMPTY = "";
+    private static final int SEEDS_PER_SIZE = 4096;
+    
+    /**
+     * Tabla del RFC 7541, inmutable y compartida por todos los encoders y
+     * decoders
+     */
+    public static final StaticTable INSTANCE = new StaticTable();
     
     private final List<HeaderField> staticTable;
-    private final Map<String, Integer> staticIndexByName;
+    private final int size;
+    
+    // Hash perfecto sobre los nombres: slot -> primer índice con ese nombre (0 = vacío)
+    private final int[] nameSlots;
+    private final int hashSeed;
+    private final int hashMask;
     
     public StaticTable() {
         this(createDefaultHeaders());
@@ -17,7 +27,27 @@ public class StaticTable implements StaticHeaderTable {
     
     public StaticTable(List<HeaderField> headers) {
         this.staticTable = List.copyOf(headers);
-        this.staticIndexByName = createMap(headers);
+        int totalSize = 0;
+        for (HeaderField header : staticTable) {
+            totalSize += header.size();
+        }
+        this.size = totalSize;
+        
+        int[] firstIndexByName = firstIndexByName(staticTable);
+        // Se busca una semilla sin colisiones; si no aparece se duplica la tabla
+        int slots = Integer.highestOneBit((Math.max(1, firstIndexByName.length) << 2) - 1) << 1;
+        int seed = 0;
+        int[] table;
+        do {
+            if (++seed > SEEDS_PER_SIZE) {
+                seed = 1;
+                slots <<= 1;
+            }
+            table = tryBuildSlots(firstIndexByName, slots, seed);
+        } while (table == null);
+        this.nameSlots = table;
+        this.hashSeed = seed;
+        this.hashMask = slots - 1;
     }
     
     private static List<HeaderField> createDefaultHeaders() {
@@ -96,9 +126,11 @@ public class StaticTable implements StaticHeaderTable {
     
     @Override
     public int getIndex(byte[] name) {
-        String nameString = new String(name, HpackUtil.ISO_8859_1);
-        Integer index = staticIndexByName.get(nameString);
-        return index != null ? index : -1;
+        int index = nameSlots[hash(name, hashSeed) & hashMask];
+        if (index == 0 || !HpackUtil.equals(name, staticTable.get(index - 1).name)) {
+            return -1;
+        }
+        return index;
     }
     
     @Override
@@ -108,15 +140,16 @@ public class StaticTable implements StaticHeaderTable {
             return -1;
         }
         
-        while (index <= staticTable.size()) {
-            HeaderField entry = getEntry(index);
-            if (!HpackUtil.equals(name, entry.name)) {
+        // Las entradas con el mismo nombre son consecutivas y la primera ya coincide
+        int length = staticTable.size();
+        for (int i = index; i <= length; i++) {
+            HeaderField entry = staticTable.get(i - 1);
+            if (i != index && !HpackUtil.equals(name, entry.name)) {
                 break;
             }
             if (HpackUtil.equals(value, entry.value)) {
-                return index;
+                return i;
             }
-            index++;
         }
         
         return -1;
@@ -129,7 +162,7 @@ public class StaticTable implements StaticHeaderTable {
     
     @Override
     public int size() {
-        return staticTable.stream().mapToInt(HeaderField::size).sum();
+        return size;
     }
     
     @Override
@@ -137,14 +170,45 @@ public class StaticTable implements StaticHeaderTable {
         return Integer.MAX_VALUE;
     }
     
-    private Map<String, Integer> createMap(List<HeaderField> headers) {
-        int length = headers.size();
-        HashMap<String, Integer> ret = new HashMap<String, Integer>(length);
-        for (int index = length; index > 0; index--) {
-            HeaderField entry = headers.get(index - 1);
-            String name = new String(entry.name, 0, entry.name.length, HpackUtil.ISO_8859_1);
-            ret.putIfAbsent(name, index);
+    /**
+     * Primer índice (base 1) de cada nombre distinto, en orden de aparición
+     */
+    private static int[] firstIndexByName(List<HeaderField> headers) {
+        int[] indexes = new int[headers.size()];
+        int count = 0;
+        outer:
+        for (int index = 1; index <= headers.size(); index++) {
+            byte[] name = headers.get(index - 1).name;
+            for (int i = 0; i < count; i++) {
+                if (HpackUtil.equals(name, headers.get(indexes[i] - 1).name)) {
+                    continue outer;
+                }
+            }
+            indexes[count++] = index;
+        }
+        return Arrays.copyOf(indexes, count);
+    }
+    
+    /**
+     * Intenta ubicar cada nombre en un slot propio; null si hay colisión
+     */
+    private int[] tryBuildSlots(int[] firstIndexByName, int slots, int seed) {
+        int[] table = new int[slots];
+        for (int index : firstIndexByName) {
+            int slot = hash(staticTable.get(index - 1).name, seed) & (slots - 1);
+            if (table[slot] != 0) {
+                return null;
+            }
+            table[slot] = index;
+        }
+        return table;
+    }
+    
+    private static int hash(byte[] name, int seed) {
+        int h = seed;
+        for (int i = 0; i < name.length; i++) {
+            h = (h ^ (name[i] & 0xFF)) * 0x01000193;
         }
-        return ret;
+        return h ^ (h >>> 15);
     }
 }
@@ -6,6 +6,8 @@ public class StringEncoder {
     private final boolean forceHuffmanOn;
     private final boolean forceHuffmanOff;
     private final HuffmanEncoder huffmanEncoder;
+    private final NumericEncoder numericEncoder = new NumericEncoder();
+    private byte[] scratch = new byte[0];
     
     public StringEncoder(boolean forceHuffmanOn, boolean forceHuffmanOff) {
         this.forceHuffmanOn = forceHuffmanOn;
@@ -14,44 +16,134 @@ public class StringEncoder {
     }
     
     public void encodeString(ByteSink out, byte[] string) throws IOException {
-        int huffmanLength = huffmanEncoder.getEncodedLength(string);
-        if ((huffmanLength < string.length && !forceHuffmanOff) || forceHuffmanOn) {
-            NumericEncoder numericEncoder = new NumericEncoder();
+        // Como siempre, forceHuffmanOn gana si están los dos
+        if (forceHuffmanOn) {
+            encodeHuffman(out, string, huffmanEncoder.getEncodedLength(string));
+        } else if (forceHuffmanOff) {
+            encodeRaw(out, string);
+        } else if (out instanceof ByteArrayByteSink) {
+            encodeShortest((ByteArrayByteSink) out, string);
+        } else {
+            encodeShortest(out, string);
+        }
+    }
+    
+    /**
+     * Una sola pasada sobre el string: se codifica en Huffman directamente
+     * en el array del sink, dejando lugar para el prefijo de longitud más
+     * largo posible, y se abandona en cuanto deja de ser más corto que el
+     * literal crudo. El prefijo se escribe al final.
+     */
+    private void encodeShortest(ByteArrayByteSink out, byte[] string) {
+        int prefixLength = NumericEncoder.getEncodedLength(7, string.length);
+        int offset = out.reserve(prefixLength + string.length);
+        byte[] dst = out.array();
+        int huffmanLength = huffmanEncoder.encodeIfShorter(dst, offset + prefixLength, string, string.length);
+        if (huffmanLength < 0) {
+            numericEncoder.encodeInteger(dst, offset, 0x00, 7, string.length);
+            System.arraycopy(string, 0, dst, offset + prefixLength, string.length);
+            return;
+        }
+        
+        // Con una longitud menor el prefijo puede ocupar menos bytes
+        int actualPrefixLength = numericEncoder.encodeInteger(dst, offset, 0x80, 7, huffmanLength);
+        if (actualPrefixLength != prefixLength) {
+            System.arraycopy(dst, offset + prefixLength, dst, offset + actualPrefixLength, huffmanLength);
+        }
+        out.truncate(offset + actualPrefixLength + huffmanLength);
+    }
+    
+    /**
+     * Igual que el anterior pero codificando primero en un buffer propio
+     */
+    private void encodeShortest(ByteSink out, byte[] string) throws IOException {
+        if (scratch.length < string.length) {
+            scratch = new byte[string.length];
+        }
+        int huffmanLength = huffmanEncoder.encodeIfShorter(scratch, 0, string, string.length);
+        if (huffmanLength < 0) {
+            encodeRaw(out, string);
+        } else {
             numericEncoder.encodeInteger(out, 0x80, 7, huffmanLength);
-            huffmanEncoder.encode(new ByteSinkOutputStream(out), string);
+            out.write(scratch, 0, huffmanLength);
+        }
+    }
+    
+    private void encodeHuffman(ByteSink out, byte[] string, int huffmanLength) throws IOException {
+        numericEncoder.encodeInteger(out, 0x80, 7, huffmanLength);
+        if (out instanceof ByteArrayByteSink) {
+            ByteArrayByteSink sink = (ByteArrayByteSink) out;
+            int offset = sink.reserve(huffmanLength);
+            huffmanEncoder.encode(sink.array(), offset, string, huffmanLength);
+        } else if (out instanceof ByteBufferByteSink) {
+            huffmanEncoder.encode(((ByteBufferByteSink) out).getBuffer(), string, huffmanLength);
         } else {
-            NumericEncoder numericEncoder = new NumericEncoder();
-            numericEncoder.encodeInteger(out, 0x00, 7, string.length);
-            out.write(string);
+            // Se arma en el buffer propio y se escribe de una vez
+            if (scratch.length < huffmanLength) {
+                scratch = new byte[huffmanLength];
+            }
+            huffmanEncoder.encode(scratch, 0, string, huffmanLength);
+            out.write(scratch, 0, huffmanLength);
         }
     }
     
-    public void encodeString(OutputStream out, byte[] string) throws IOException {
-        encodeString(new OutputStreamByteSink(out), string);
+    private void encodeRaw(ByteSink out, byte[] string) throws IOException {
+        numericEncoder.encodeInteger(out, 0x00, 7, string.length);
+        out.write(string);
     }
     
-    private static class ByteSinkOutputStream extends OutputStream {
-        private final ByteSink byteSink;
-        
-        ByteSinkOutputStream(ByteSink byteSink) {
-            this.byteSink = byteSink;
+    /**
+     * Escribe el literal tal como llegó al decoder, sin pasar por Huffman.
+     * Solo se decodifica si hay que forzar la otra representación.
+     */
+    public void encodeString(ByteSink out, LazyHeaderValue value) throws IOException {
+        boolean huffman = value.isHuffmanEncoded();
+        if (mustReencode(huffman)) {
+            encodeString(out, value.getValue());
+            return;
         }
-        
-        @Override
-        public void write(int b) throws IOException {
-            byteSink.write(b);
+        byte[] encoded = value.getEncoded();
+        numericEncoder.encodeInteger(out, huffman ? 0x80 : 0x00, 7, encoded.length);
+        out.write(encoded);
+    }
+    
+    /**
+     * Cota superior, sin recorrer el string, de los bytes que ocupa
+     * encodeString: prefijo de longitud más el literal crudo o Huffman.
+     */
+    public int getMaxEncodedLength(byte[] string) {
+        return getMaxEncodedLength(string.length);
+    }
+    
+    public int getMaxEncodedLength(LazyHeaderValue value) {
+        int length = value.getEncoded().length;
+        boolean huffman = value.isHuffmanEncoded();
+        if (mustReencode(huffman)) {
+            return getMaxEncodedLength(huffman ? Huffman.getMaxDecodedLength(length) : length);
         }
-        
-        @Override
-        public void write(byte[] b) throws IOException {
-            byteSink.write(b);
+        return NumericEncoder.getEncodedLength(7, length) + length;
+    }
+    
+    /**
+     * Si un literal que llegó con esa representación no respeta los flags
+     */
+    private boolean mustReencode(boolean huffman) {
+        return huffman ? forceHuffmanOff && !forceHuffmanOn : forceHuffmanOn;
+    }
+    
+    private int getMaxEncodedLength(int stringLength) {
+        long length = stringLength;
+        if (forceHuffmanOn) {
+            // El código Huffman más largo ocupa 30 bits por byte
+            length = (length * 30 + 7) >> 3;
         }
-        
-        @Override
-        public void write(byte[] b, int off, int len) throws IOException {
-            byte[] slice = new byte[len];
-            System.arraycopy(b, off, slice, 0, len);
-            byteSink.write(slice);
+        if (length > Integer.MAX_VALUE - 6) {
+            throw new IllegalArgumentException("string too long: " + stringLength);
         }
+        return NumericEncoder.getEncodedLength(7, (int) length) + (int) length;
+    }
+    
+    public void encodeString(OutputStream out, byte[] string) throws IOException {
+        encodeString(new OutputStreamByteSink(out), string);
     }
-}
\ No newline at end of file
+}
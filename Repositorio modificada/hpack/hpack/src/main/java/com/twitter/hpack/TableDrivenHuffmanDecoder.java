@@ -0,0 +1,213 @@
+package main.java.com.twitter.hpack;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Decodificador Huffman guiado por una tabla de transiciones precalculada.
+ * Procesa la entrada de a 4 bits (nibble) sin recorrer nodos ni usar
+ * despacho virtual: cada paso es una lectura de un int[].
+ */
+public class TableDrivenHuffmanDecoder implements HuffmanDecoder {
+    private static final IOException EOS_DECODED = new IOException("EOS Decoded");
+    private static final IOException INVALID_PADDING = new IOException("Invalid Padding");
+
+    // Formato de cada entrada: [flags:3][simbolo:8][siguiente estado:9]
+    private static final int STATE_MASK = 0x1FF;
+    private static final int SYMBOL_SHIFT = 9;
+    private static final int FLAG_SYMBOL = 1 << 17;
+    private static final int FLAG_ACCEPT = 1 << 18;
+    private static final int FLAG_FAIL = 1 << 19;
+
+    private final int[] transitions;
+
+    public TableDrivenHuffmanDecoder(int[] codes, byte[] lengths) {
+        if (codes.length != 257 || codes.length != lengths.length) {
+            throw new IllegalArgumentException("invalid Huffman coding");
+        }
+        this.transitions = codes == HpackUtil.HUFFMAN_CODES && lengths == HpackUtil.HUFFMAN_CODE_LENGTHS
+            ? RfcTable.TRANSITIONS
+            : buildTable(codes, lengths);
+    }
+
+    /**
+     * Tabla del codigo del RFC: se construye una sola vez por JVM, la
+     * primera vez que se usa, y la comparten todas las instancias
+     */
+    private static final class RfcTable {
+        static final int[] TRANSITIONS = buildTable(HpackUtil.HUFFMAN_CODES, HpackUtil.HUFFMAN_CODE_LENGTHS);
+    }
+
+    @Override
+    public byte[] decode(byte[] buf) throws IOException {
+        byte[] out = new byte[Huffman.getMaxDecodedLength(buf.length)];
+        int written = decode(buf, 0, buf.length, out, 0);
+        return written == out.length ? out : Arrays.copyOf(out, written);
+    }
+
+    @Override
+    public int decode(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) throws IOException {
+        if (srcOff < 0 || srcLen < 0 || srcOff > src.length - srcLen) {
+            throw new IndexOutOfBoundsException();
+        } else if (dstOff < 0 || dstOff > dst.length - Huffman.getMaxDecodedLength(srcLen)) {
+            throw new IndexOutOfBoundsException();
+        }
+        long result = decode(FLAG_ACCEPT, src, srcOff, srcLen, dst, dstOff);
+
+        // El padding debe ser un prefijo de EOS de menos de 8 bits
+        if ((result >>> 32 & FLAG_ACCEPT) == 0) {
+            throw INVALID_PADDING;
+        }
+        return (int) result;
+    }
+
+    /**
+     * Crea un decodificador incremental que comparte esta tabla
+     */
+    public Stream newStream() {
+        return new Stream();
+    }
+
+    /**
+     * Decodificacion incremental de un literal que llega en varios
+     * fragmentos: el estado del automata se conserva entre llamadas.
+     */
+    public final class Stream {
+        private int entry = FLAG_ACCEPT;
+
+        /**
+         * Decodifica el fragmento y devuelve los bytes escritos en dst. Un
+         * simbolo puede completarse con bits de fragmentos anteriores.
+         */
+        public int decode(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) throws IOException {
+            if (srcOff < 0 || srcLen < 0 || srcOff > src.length - srcLen) {
+                throw new IndexOutOfBoundsException();
+            }
+            long result;
+            try {
+                result = TableDrivenHuffmanDecoder.this.decode(entry, src, srcOff, srcLen, dst, dstOff);
+            } catch (IOException e) {
+                reset();
+                throw e;
+            }
+            entry = (int) (result >>> 32);
+            return (int) result;
+        }
+
+        /**
+         * Termina el literal validando el padding y deja el stream listo
+         * para el siguiente
+         */
+        public void end() throws IOException {
+            boolean accept = (entry & FLAG_ACCEPT) != 0;
+            reset();
+            if (!accept) {
+                throw INVALID_PADDING;
+            }
+        }
+
+        public void reset() {
+            entry = FLAG_ACCEPT;
+        }
+    }
+
+    /**
+     * Recorre la tabla desde la entrada dada. Devuelve la ultima entrada en
+     * los 32 bits altos y la cantidad de bytes escritos en los bajos.
+     */
+    private long decode(int entry, byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) throws IOException {
+        int written = dstOff;
+        int state = entry & STATE_MASK;
+        for (int i = srcOff; i < srcOff + srcLen; i++) {
+            int b = src[i] & 0xFF;
+
+            entry = transitions[(state << 4) | (b >>> 4)];
+            if ((entry & FLAG_FAIL) != 0) {
+                throw EOS_DECODED;
+            }
+            if ((entry & FLAG_SYMBOL) != 0) {
+                dst[written++] = (byte) (entry >>> SYMBOL_SHIFT);
+            }
+            state = entry & STATE_MASK;
+
+            entry = transitions[(state << 4) | (b & 0x0F)];
+            if ((entry & FLAG_FAIL) != 0) {
+                throw EOS_DECODED;
+            }
+            if ((entry & FLAG_SYMBOL) != 0) {
+                dst[written++] = (byte) (entry >>> SYMBOL_SHIFT);
+            }
+            state = entry & STATE_MASK;
+        }
+        return ((long) entry << 32) | (written - dstOff);
+    }
+
+    /**
+     * Construye el arbol binario del codigo y lo aplana en una tabla de
+     * 16 transiciones por nodo interno.
+     */
+    private static int[] buildTable(int[] codes, byte[] lengths) {
+        // Nodos internos: hijos en child[2 * n] y child[2 * n + 1].
+        // Valores >= 0 son nodos internos, valores < 0 son hojas (~simbolo).
+        int[] child = new int[2 * codes.length];
+        Arrays.fill(child, Integer.MIN_VALUE);
+        int nodes = 1;
+
+        for (int symbol = 0; symbol < codes.length; symbol++) {
+            int code = codes[symbol];
+            int length = lengths[symbol];
+            int node = 0;
+            for (int bit = length - 1; bit > 0; bit--) {
+                int slot = 2 * node + ((code >>> bit) & 1);
+                if (child[slot] == Integer.MIN_VALUE) {
+                    child[slot] = nodes++;
+                } else if (child[slot] < 0) {
+                    throw new IllegalStateException("invalid Huffman code: prefix not unique");
+                }
+                node = child[slot];
+            }
+            int slot = 2 * node + (code & 1);
+            if (child[slot] != Integer.MIN_VALUE) {
+                throw new IllegalStateException("invalid Huffman code: prefix not unique");
+            }
+            child[slot] = ~symbol;
+        }
+
+        // Un nodo acepta fin de entrada si se llega a el solo con bits 1
+        // y a menos de 8 bits de profundidad.
+        boolean[] accepting = new boolean[nodes];
+        int node = 0;
+        for (int depth = 0; depth < 8 && node >= 0; depth++) {
+            accepting[node] = true;
+            node = child[2 * node + 1];
+        }
+
+        int[] table = new int[nodes << 4];
+        for (int state = 0; state < nodes; state++) {
+            for (int nibble = 0; nibble < 16; nibble++) {
+                int current = state;
+                int flags = 0;
+                int symbol = 0;
+                for (int bit = 3; bit >= 0; bit--) {
+                    int next = child[2 * current + ((nibble >>> bit) & 1)];
+                    if (next < 0) {
+                        if (~next == HpackUtil.HUFFMAN_EOS) {
+                            flags |= FLAG_FAIL;
+                            break;
+                        }
+                        symbol = ~next;
+                        flags |= FLAG_SYMBOL;
+                        current = 0;
+                    } else {
+                        current = next;
+                    }
+                }
+                if ((flags & FLAG_FAIL) == 0 && accepting[current]) {
+                    flags |= FLAG_ACCEPT;
+                }
+                table[(state << 4) | nibble] = flags | (symbol << SYMBOL_SHIFT) | current;
+            }
+        }
+        return table;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import org.junit.Test;
+
+import static com.twitter.hpack.HpackUtil.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class CircularQueueTest {
+
+  // 32 bytes of overhead + 1 byte of name + valueLength
+  private static HeaderField header(String name, int valueLength) {
+    return new HeaderField(name.getBytes(ISO_8859_1), new byte[valueLength]);
+  }
+
+  @Test
+  public void testCountToFree() {
+    CircularQueue queue = new CircularQueue();
+    queue.add(header("a", 7));  // 40
+    queue.add(header("b", 17)); // 50
+    queue.add(header("c", 27)); // 60
+    assertEquals(150, queue.size());
+
+    assertEquals(0, queue.countToFree(0));
+    assertEquals(0, queue.countToFree(-1));
+    assertEquals(1, queue.countToFree(1));
+    assertEquals(1, queue.countToFree(40));
+    assertEquals(2, queue.countToFree(41));
+    assertEquals(2, queue.countToFree(90));
+    assertEquals(3, queue.countToFree(91));
+    assertEquals(3, queue.countToFree(150));
+    assertEquals(3, queue.countToFree(151));
+  }
+
+  @Test
+  public void testRemoveOldestPartial() {
+    CircularQueue queue = new CircularQueue();
+    HeaderField a = header("a", 7);
+    HeaderField b = header("b", 17);
+    HeaderField c = header("c", 27);
+    queue.add(a);
+    queue.add(b);
+    queue.add(c);
+
+    assertEquals(0, queue.removeOldest(0));
+    assertEquals(40, queue.removeOldest(1));
+    assertEquals(2, queue.length());
+    assertEquals(110, queue.size());
+    assertSame(c, queue.getEntry(1));
+    assertSame(b, queue.getEntry(2));
+
+    // the prefix sums still count from the new oldest entry
+    assertEquals(1, queue.countToFree(50));
+    assertEquals(2, queue.countToFree(51));
+
+    assertEquals(110, queue.removeOldest(2));
+    assertEquals(0, queue.length());
+    assertEquals(0, queue.size());
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testRemoveOldestTooMany() {
+    CircularQueue queue = new CircularQueue();
+    queue.add(header("a", 7));
+    queue.removeOldest(2);
+  }
+
+  @Test
+  public void testWraparound() {
+    CircularQueue queue = new CircularQueue();
+    queue.resize(4);
+    for (int i = 0; i < 3; i++) {
+      queue.add(header("a", i));
+    }
+    assertEquals(33 + 34, queue.removeOldest(2));
+    // slots 3, 0 and 1: the live entries now cross the end of the array
+    HeaderField b = header("b", 10);
+    HeaderField c = header("c", 20);
+    HeaderField d = header("d", 30);
+    queue.add(b);
+    queue.add(c);
+    queue.add(d);
+    assertEquals(4, queue.length());
+    assertEquals(35 + 43 + 53 + 63, queue.size());
+
+    assertEquals(1, queue.countToFree(35));
+    assertEquals(2, queue.countToFree(36));
+    assertEquals(3, queue.countToFree(35 + 43 + 1));
+    assertEquals(4, queue.countToFree(35 + 43 + 53 + 1));
+
+    assertEquals(35 + 43 + 53, queue.removeOldest(3));
+    assertEquals(1, queue.length());
+    assertEquals(63, queue.size());
+    assertSame(d, queue.getEntry(1));
+
+    // resizing keeps the prefix sums consistent
+    queue.add(b);
+    queue.resize(8);
+    assertEquals(1, queue.countToFree(63));
+    assertEquals(2, queue.countToFree(64));
+    assertEquals(63, queue.removeOldest(1));
+    assertSame(b, queue.getEntry(1));
+  }
+}
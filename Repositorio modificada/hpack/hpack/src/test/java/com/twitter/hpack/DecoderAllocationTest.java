@@ -0,0 +1,77 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertTrue;
+
+public class DecoderAllocationTest {
+
+  private static final int WARMUP_ITERATIONS = 20000;
+  private static final int ITERATIONS = 100000;
+
+  // A 5 byte value array is 24 bytes with compressed class pointers and 32
+  // bytes without; anything else allocated per header pushes us over.
+  private static final double MAX_BYTES_PER_HEADER = 32;
+
+  private com.sun.management.ThreadMXBean threadMXBean;
+
+  @Before
+  public void setUp() {
+    Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+    threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    Assume.assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Test
+  public void testLiteralWithIndexedNameAllocatesOnlyValue() throws IOException {
+    Decoder decoder = new Decoder(8192, 4096);
+    HeaderListener listener = new HeaderListener() {
+      @Override
+      public void addHeader(byte[] name, byte[] value, boolean sensitive) {
+      }
+    };
+    // Literal without indexing, indexed name ':path', raw value "value"
+    String encoded = "0405" + Hex.encodeHexString("value".getBytes());
+    ByteBuffer in = ByteBuffer.wrap(Hex.decodeHex(encoded.toCharArray()));
+
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      in.rewind();
+      decoder.decode(in, listener);
+      decoder.endHeaderBlock();
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < ITERATIONS; i++) {
+      in.rewind();
+      decoder.decode(in, listener);
+      decoder.endHeaderBlock();
+    }
+    long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - before;
+
+    double perHeader = (double) allocated / ITERATIONS;
+    assertTrue("allocated " + perHeader + " bytes per header", perHeader <= MAX_BYTES_PER_HEADER);
+  }
+}
@@ -17,6 +17,9 @@ package com.twitter.hpack;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -69,6 +72,118 @@ public class DecoderTest {
     assertEquals(1, in.available());
   }
 
+  @Test
+  public void testByteBufferSplitAcrossFragments() throws IOException {
+    // Verify a header block split mid-value resumes on the next fragment
+    byte[] compressed = Hex.decodeHex(("4004" + hex("name") + "05" + hex("value")).toCharArray());
+    ByteBuffer in = ByteBuffer.allocateDirect(compressed.length);
+    in.put(compressed, 0, 8).flip();
+    decoder.decode(in, mockListener);
+    verifyNoMoreInteractions(mockListener);
+    // The partial value is consumed as it arrives, nothing is left behind
+    assertEquals(0, in.remaining());
+
+    in.compact();
+    in.put(compressed, 8, compressed.length - 8).flip();
+    decoder.decode(in, mockListener);
+    verify(mockListener).addHeader(getBytes("name"), getBytes("value"), false);
+    assertEquals(0, in.remaining());
+  }
+
+  @Test
+  public void testSliceListener() throws IOException {
+    final List<String> headers = new ArrayList<String>();
+    HeaderSliceListener listener = new HeaderSliceListener() {
+      @Override
+      public void addHeader(byte[] name, int nameOffset, int nameLength,
+                            byte[] value, int valueOffset, int valueLength, boolean sensitive) {
+        headers.add(new String(name, nameOffset, nameLength, ISO_8859_1) + ": "
+            + new String(value, valueOffset, valueLength, ISO_8859_1));
+      }
+    };
+    byte[] compressed = Hex.decodeHex(("4004" + hex("name") + "05" + hex("value")
+        + "0003" + hex("foo") + "00" + "BE").toCharArray());
+    decoder.decode(new ByteArrayInputStream(compressed), listener);
+    assertEquals(3, headers.size());
+    assertEquals("name: value", headers.get(0));
+    assertEquals("foo: ", headers.get(1));
+    assertEquals("name: value", headers.get(2));
+  }
+
+  @Test
+  public void testStreamListener() throws IOException {
+    final StringBuilder events = new StringBuilder();
+    HeaderStreamListener listener = new HeaderStreamListener() {
+      @Override
+      public void startHeader(byte[] name, int nameOffset, int nameLength, boolean sensitive) {
+        events.append(new String(name, nameOffset, nameLength, ISO_8859_1)).append(':');
+      }
+
+      @Override
+      public void addValue(byte[] value, int offset, int length) {
+        events.append('[').append(new String(value, offset, length, ISO_8859_1)).append(']');
+      }
+
+      @Override
+      public void endHeader() {
+        events.append(';');
+      }
+    };
+    // Huffman-coded "custom-key: custom-value" without indexing (RFC 7541 C.4.3)
+    byte[] compressed = Hex.decodeHex("008825a849e95ba97d7f8925a849e95bb8e8b4bf".toCharArray());
+    ByteBuffer in = ByteBuffer.allocate(compressed.length);
+    in.put(compressed, 0, 15).flip();
+    decoder.decode(in, listener);
+    assertEquals(0, in.remaining());
+    assertEquals("custom-key:[custom]", events.toString());
+
+    in.clear();
+    in.put(compressed, 15, compressed.length - 15).flip();
+    decoder.decode(in, listener);
+    assertEquals("custom-key:[custom][-value];", events.toString());
+  }
+
+  @Test
+  public void testLazyListener() throws IOException {
+    final List<LazyHeaderValue> values = new ArrayList<LazyHeaderValue>();
+    LazyHeaderListener listener = new LazyHeaderListener() {
+      @Override
+      public void addHeader(byte[] name, LazyHeaderValue value, boolean sensitive) {
+        values.add(value);
+      }
+    };
+    // Huffman-coded "custom-key: custom-value" without indexing (RFC 7541 C.4.3)
+    byte[] compressed = Hex.decodeHex("008825a849e95ba97d7f8925a849e95bb8e8b4bf".toCharArray());
+    decoder.decodeLazy(new ByteArrayInputStream(compressed), listener);
+    assertEquals(1, values.size());
+    LazyHeaderValue value = values.get(0);
+    assertTrue(value.isHuffmanEncoded());
+    assertFalse(value.isDecoded());
+    assertEquals("25a849e95bb8e8b4bf", Hex.encodeHexString(value.getEncoded()));
+    assertEquals("custom-value", new String(value.getValue(), ISO_8859_1));
+    assertTrue(value.isDecoded());
+  }
+
+  @Test
+  public void testLambdaListener() throws IOException {
+    // A three-argument lambda must resolve to HeaderListener without a cast
+    final List<String> headers = new ArrayList<String>();
+    byte[] compressed = Hex.decodeHex("008825a849e95ba97d7f8925a849e95bb8e8b4bf".toCharArray());
+    decoder.decode(new ByteArrayInputStream(compressed),
+        (name, value, sensitive) -> headers.add(new String(name, ISO_8859_1) + ": " + new String(value, ISO_8859_1)));
+    assertEquals(1, headers.size());
+    assertEquals("custom-key: custom-value", headers.get(0));
+  }
+
+  @Test(expected = IOException.class)
+  public void testReset() throws IOException {
+    decode("4004" + hex("name") + "05" + hex("value"));
+    verify(mockListener).addHeader(getBytes("name"), getBytes("value"), false);
+    decoder.reset();
+    // The dynamic table entry must be gone after reset
+    decode("BE");
+  }
+
   @Test(expected = IOException.class)
   public void testUnusedIndex() throws IOException {
     // Index 0 is not used
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static com.twitter.hpack.HpackUtil.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class DynamicTableManagerTest {
+
+  private static final int STATIC_LENGTH = StaticTable.INSTANCE.length();
+
+  // 32 + 6 + 10 bytes each
+  private static final int ENTRY_SIZE = 48;
+
+  private static byte[] name(int i) {
+    return String.format("n%05d", i % 50000).getBytes(ISO_8859_1);
+  }
+
+  private static byte[] value(int i) {
+    return String.format("v%09d", i).getBytes(ISO_8859_1);
+  }
+
+  @Test
+  public void testLookupInLargeTable() throws IOException {
+    int entries = 100000;
+    DynamicTableManager table = new DynamicTableManager(entries * ENTRY_SIZE);
+    for (int i = 0; i < entries; i++) {
+      table.addHeader(name(i), value(i));
+    }
+    assertEquals(entries, table.getEntryCount());
+    assertEquals(entries * ENTRY_SIZE, table.getCurrentSize());
+
+    for (int i = 0; i < entries; i += 7) {
+      assertEquals(STATIC_LENGTH + entries - i, table.findHeaderIndex(name(i), value(i)).intValue());
+    }
+    // every name was added twice: the newest one wins
+    for (int i = 0; i < 50000; i += 7) {
+      assertEquals(STATIC_LENGTH + 50000 - i, table.findNameIndex(name(i)).intValue());
+    }
+    assertNull(table.findHeaderIndex(name(0), value(1)));
+    assertNull(table.findNameIndex("absent".getBytes(ISO_8859_1)));
+  }
+
+  @Test
+  public void testEvictionInLargeTable() throws IOException {
+    int entries = 100000;
+    DynamicTableManager table = new DynamicTableManager(entries * ENTRY_SIZE);
+    for (int i = 0; i < entries; i++) {
+      table.addHeader(name(i), value(i));
+    }
+
+    // room for a header of 10 entries evicts exactly the 10 oldest
+    table.ensureCapacity(10 * ENTRY_SIZE);
+    assertEquals(entries - 10, table.getEntryCount());
+    assertNull(table.findHeaderIndex(name(9), value(9)));
+    assertEquals(STATIC_LENGTH + entries - 10, table.findHeaderIndex(name(10), value(10)).intValue());
+
+    // shrinking keeps the newest quarter
+    table.setCapacity(entries / 4 * ENTRY_SIZE);
+    assertEquals(entries / 4, table.getEntryCount());
+    assertEquals(entries / 4 * ENTRY_SIZE, table.getCurrentSize());
+    int oldest = entries - entries / 4;
+    assertNull(table.findHeaderIndex(name(oldest - 1), value(oldest - 1)));
+    assertEquals(STATIC_LENGTH + entries / 4, table.findHeaderIndex(name(oldest), value(oldest)).intValue());
+    assertEquals(STATIC_LENGTH + 1, table.findNameIndex(name(entries - 1)).intValue());
+
+    // and the table keeps working after the batch eviction
+    for (int i = entries; i < entries + 1000; i++) {
+      table.addHeader(name(i), value(i));
+    }
+    assertEquals(entries / 4, table.getEntryCount());
+    assertEquals(STATIC_LENGTH + 1000, table.findHeaderIndex(name(entries), value(entries)).intValue());
+    assertNull(table.findHeaderIndex(name(oldest + 999), value(oldest + 999)));
+
+    table.setCapacity(0);
+    assertEquals(0, table.getEntryCount());
+    assertNull(table.findNameIndex(name(entries)));
+  }
+
+  @Test(expected = IOException.class)
+  public void testIllegalCapacity() throws IOException {
+    new DynamicTableManager(4096).setCapacity(-1);
+  }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static com.twitter.hpack.HpackUtil.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class DynamicTableTest {
+
+  private static HeaderField header(String name, int valueLength) {
+    return new HeaderField(name.getBytes(ISO_8859_1), new byte[valueLength]);
+  }
+
+  // 40 names and 4 values of 0 to 45 bytes, so lookups hit both indexes
+  private static HeaderField randomHeader(Random random) {
+    return new HeaderField(getBytes("k" + random.nextInt(40)), new byte[15 * random.nextInt(4)]);
+  }
+
+  private static byte[] getBytes(String s) {
+    return s.getBytes(ISO_8859_1);
+  }
+
+  @Test
+  public void testEvictsOnlyWhatIsNeeded() throws IOException {
+    for (EvictionPolicy policy : new EvictionPolicy[] { new DefaultEvictionPolicy(), new LRUEvictionPolicy() }) {
+      // 3 entries of 40 bytes each (32 overhead + 1 + 7)
+      DynamicTable table = new DynamicTable(120, policy);
+      table.add(header("a", 7));
+      table.add(header("b", 7));
+      table.add(header("c", 7));
+      assertEquals(120, table.size());
+
+      // 72 bytes: needs the two oldest entries to go, not the third
+      table.add(header("d", 39));
+      assertEquals(2, table.length());
+      assertEquals(112, table.size());
+      assertEquals(-1, table.getIndex(getBytes("a")));
+      assertEquals(-1, table.getIndex(getBytes("b")));
+      assertEquals(2, table.getIndex(getBytes("c")));
+      assertEquals(1, table.getIndex(getBytes("d")));
+    }
+  }
+
+  @Test
+  public void testIndexLookupsAfterEviction() throws IOException {
+    DynamicTable table = new DynamicTable(200);
+    table.add(new HeaderField(getBytes("a"), getBytes("1234567"))); // 40
+    table.add(new HeaderField(getBytes("b"), getBytes("1234567")));
+    table.add(new HeaderField(getBytes("a"), getBytes("7654321")));
+    table.add(new HeaderField(getBytes("c"), getBytes("1234567")));
+    table.add(new HeaderField(getBytes("b"), getBytes("7654321")));
+    assertEquals(200, table.size());
+
+    // 70 bytes: evicts a=1234567 and b=1234567 in one batch
+    table.add(new HeaderField(getBytes("d"), new byte[37]));
+    assertEquals(4, table.length());
+    assertEquals(-1, table.getIndex(getBytes("a"), getBytes("1234567")));
+    assertEquals(-1, table.getIndex(getBytes("b"), getBytes("1234567")));
+    assertEquals(4, table.getIndex(getBytes("a")));
+    assertEquals(4, table.getIndex(getBytes("a"), getBytes("7654321")));
+    assertEquals(2, table.getIndex(getBytes("b")));
+    assertEquals(2, table.getIndex(getBytes("b"), getBytes("7654321")));
+    assertEquals(3, table.getIndex(getBytes("c"), getBytes("1234567")));
+    assertEquals(1, table.getIndex(getBytes("d")));
+  }
+
+  @Test
+  public void testCapacityDropToZero() throws IOException {
+    DynamicTable table = new DynamicTable(120);
+    table.add(header("a", 7));
+    table.add(header("b", 7));
+    table.setCapacity(0);
+    assertEquals(0, table.length());
+    assertEquals(0, table.size());
+    assertEquals(-1, table.getIndex(getBytes("a")));
+
+    // nothing fits at capacity 0
+    table.add(header("c", 0));
+    assertEquals(0, table.length());
+
+    table.setCapacity(120);
+    HeaderField d = header("d", 7);
+    table.add(d);
+    assertSame(d, table.getEntry(1));
+    assertEquals(1, table.getIndex(getBytes("d")));
+  }
+
+  /**
+   * Replays random inserts and capacity changes against a plain deque that
+   * evicts one entry at a time, oldest first.
+   */
+  @Test
+  public void testMatchesOneByOneEviction() throws IOException {
+    for (EvictionPolicy policy : new EvictionPolicy[] { new DefaultEvictionPolicy(), new LRUEvictionPolicy() }) {
+      Random random = new Random(5);
+      DynamicTable table = new DynamicTable(800, policy);
+      ArrayDeque<HeaderField> expected = new ArrayDeque<HeaderField>();
+      int expectedSize = 0;
+
+      for (int i = 0; i < 20000; i++) {
+        if (random.nextInt(100) == 0) {
+          int capacity = random.nextInt(1500);
+          table.setCapacity(capacity);
+          while (expectedSize > capacity) {
+            expectedSize -= expected.removeLast().size();
+          }
+        }
+
+        HeaderField header = randomHeader(random);
+        if (header.size() > table.capacity()) {
+          expected.clear();
+          expectedSize = 0;
+        } else {
+          while (expectedSize + header.size() > table.capacity()) {
+            expectedSize -= expected.removeLast().size();
+          }
+          expected.addFirst(header);
+          expectedSize += header.size();
+        }
+        table.add(header);
+
+        assertEquals(expected.size(), table.length());
+        assertEquals(expectedSize, table.size());
+
+        HeaderField probe = randomHeader(random);
+        int nameIndex = -1;
+        int nameValueIndex = -1;
+        int index = 1;
+        for (HeaderField entry : expected) {
+          if (nameIndex == -1 && Arrays.equals(entry.name, probe.name)) {
+            nameIndex = index;
+          }
+          if (nameValueIndex == -1 && entry.equals(probe)) {
+            nameValueIndex = index;
+          }
+          index++;
+        }
+        assertEquals(nameIndex, table.getIndex(probe.name));
+        assertEquals(nameValueIndex, table.getIndex(probe.name, probe.value));
+      }
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import static com.twitter.hpack.HpackUtil.ISO_8859_1;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EncoderTest {
+
+  private static final List<EncoderHeader> RESPONSE = Arrays.asList(
+      new EncoderHeader(":status", "200", false),
+      new EncoderHeader("content-type", "text/html; charset=utf-8", false),
+      new EncoderHeader("server", "hpack", false),
+      new EncoderHeader("cache-control", "private", false),
+      new EncoderHeader("set-cookie", "session=a8f3e2c1b0", true),
+      new EncoderHeader("x-custom", "custom-value", false));
+
+  private static byte[] getBytes(String s) {
+    return s.getBytes(ISO_8859_1);
+  }
+
+  private static byte[] encode(Encoder encoder, List<EncoderHeader> headers) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encodeHeaders(out, headers);
+    return out.toByteArray();
+  }
+
+  private static byte[] encode(Encoder encoder, HeaderBlockTemplate template) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encodeHeaders(out, template);
+    return out.toByteArray();
+  }
+
+  /**
+   * Encodes one header that differs on every block, so that the dynamic table
+   * shifts between uses of the template.
+   */
+  private static byte[] encodeRequestId(Encoder encoder, int block) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encodeHeader(out, getBytes("x-request-id"), getBytes("request-" + block), false);
+    return out.toByteArray();
+  }
+
+  private static byte[] setMaxHeaderTableSize(Encoder encoder, int maxHeaderTableSize) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.setMaxHeaderTableSize(out, maxHeaderTableSize);
+    return out.toByteArray();
+  }
+
+  @Test
+  public void testTemplateMatchesHeaderList() throws IOException {
+    for (boolean useIndexing : new boolean[] { true, false }) {
+      Encoder listEncoder = new Encoder(4096, useIndexing, false, false);
+      Encoder templateEncoder = new Encoder(4096, useIndexing, false, false);
+      HeaderBlockTemplate template = templateEncoder.compile(RESPONSE);
+      assertEquals(RESPONSE.size(), template.length());
+
+      for (int block = 0; block < 8; block++) {
+        assertArrayEquals(encode(listEncoder, RESPONSE), encode(templateEncoder, template));
+        assertArrayEquals(encodeRequestId(listEncoder, block), encodeRequestId(templateEncoder, block));
+      }
+    }
+  }
+
+  @Test
+  public void testTemplateRecompilesAfterTableSizeChange() throws IOException {
+    Encoder listEncoder = new Encoder(4096);
+    Encoder templateEncoder = new Encoder(4096);
+    HeaderBlockTemplate template = templateEncoder.compile(RESPONSE);
+
+    for (int maxHeaderTableSize : new int[] { 4096, 0, 100, 0, 4096 }) {
+      assertArrayEquals(setMaxHeaderTableSize(listEncoder, maxHeaderTableSize),
+          setMaxHeaderTableSize(templateEncoder, maxHeaderTableSize));
+      for (int block = 0; block < 3; block++) {
+        assertArrayEquals(encode(listEncoder, RESPONSE), encode(templateEncoder, template));
+        assertArrayEquals(encodeRequestId(listEncoder, block), encodeRequestId(templateEncoder, block));
+      }
+      if (maxHeaderTableSize == 0) {
+        // nothing can be indexed, so the whole template is copied as is
+        assertArrayEquals(encode(listEncoder, RESPONSE), encode(templateEncoder, template));
+        assertEquals(0, template.variableLength());
+      }
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testTemplateFromAnotherEncoder() throws IOException {
+    HeaderBlockTemplate template = new Encoder(4096).compile(RESPONSE);
+    encode(new Encoder(4096), template);
+  }
+
+  @Test
+  public void testTemplateMaxEncodedLength() throws IOException {
+    for (boolean useIndexing : new boolean[] { true, false }) {
+      for (boolean forceHuffmanOn : new boolean[] { true, false }) {
+        Encoder encoder = new Encoder(4096, useIndexing, forceHuffmanOn, !forceHuffmanOn);
+        HeaderBlockTemplate template = encoder.compile(RESPONSE);
+
+        for (int maxHeaderTableSize : new int[] { 4096, 0, 100 }) {
+          setMaxHeaderTableSize(encoder, maxHeaderTableSize);
+          for (int block = 0; block < 3; block++) {
+            int maxEncodedLength = encoder.getMaxEncodedLength(template);
+            int encodedLength = encode(encoder, template).length;
+            assertTrue(encodedLength + " > " + maxEncodedLength, encodedLength <= maxEncodedLength);
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testRoundTripWithIndexingPolicy() throws IOException {
+    IndexingPolicy policy = new NameIndexingPolicy(new FrequencyIndexingPolicy(16, 2),
+        NameIndexingPolicy.HIGH_CARDINALITY_NAMES);
+    Encoder encoder = new Encoder(256, true, false, false, null, policy);
+    Decoder decoder = new Decoder(8192, 256);
+
+    for (int block = 0; block < 20; block++) {
+      List<EncoderHeader> headers = new ArrayList<EncoderHeader>(RESPONSE);
+      headers.add(new EncoderHeader("x-request-id", "request-" + block, false));
+      headers.add(new EncoderHeader("etag", "\"" + (block % 3) + "\"", false));
+
+      List<HeaderField> decoded = new ArrayList<HeaderField>();
+      decoder.decode(new ByteArrayInputStream(encode(encoder, headers)), new TestHeaderListener(decoded));
+      assertFalse(decoder.endHeaderBlock());
+
+      List<HeaderField> expected = new ArrayList<HeaderField>();
+      for (EncoderHeader header : headers) {
+        expected.add(new HeaderField(header.getName(), header.getValue()));
+      }
+      assertEquals(expected, decoded);
+    }
+  }
+
+  @Test
+  public void testEncodeHeadersMatchesEncodeHeader() throws IOException {
+    for (boolean useIndexing : new boolean[] { true, false }) {
+      for (LiteralHeaderCache literalCache : new LiteralHeaderCache[] { null, new LiteralHeaderCache(4096) }) {
+        Encoder expectedEncoder = new Encoder(256, useIndexing, false, false);
+        Encoder streamEncoder = new Encoder(256, useIndexing, false, false, literalCache);
+        Encoder bufferEncoder = new Encoder(256, useIndexing, false, false);
+        Encoder sinkEncoder = new Encoder(256, useIndexing, false, false);
+
+        for (int block = 0; block < 8; block++) {
+          List<EncoderHeader> headers = new ArrayList<EncoderHeader>(RESPONSE);
+          headers.add(new EncoderHeader("x-request-id", "request-" + block, false));
+
+          ByteArrayOutputStream expected = new ByteArrayOutputStream();
+          for (EncoderHeader header : headers) {
+            expectedEncoder.encodeHeader(expected, header.getName(), header.getValue(), header.isSensitive());
+          }
+
+          ByteArrayOutputStream stream = new ByteArrayOutputStream();
+          streamEncoder.encodeHeaders(stream, headers);
+          assertArrayEquals(expected.toByteArray(), stream.toByteArray());
+
+          ByteBuffer buffer = ByteBuffer.allocate(bufferEncoder.getMaxEncodedLength(headers));
+          bufferEncoder.encodeHeaders(buffer, headers);
+          assertArrayEquals(expected.toByteArray(), Arrays.copyOf(buffer.array(), buffer.position()));
+
+          ByteArrayByteSink sink = new ByteArrayByteSink();
+          sinkEncoder.encodeHeaders(sink, headers);
+          assertArrayEquals(expected.toByteArray(), Arrays.copyOf(sink.array(), sink.size()));
+        }
+      }
+    }
+  }
+}
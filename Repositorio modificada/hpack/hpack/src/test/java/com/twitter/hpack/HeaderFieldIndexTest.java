@@ -0,0 +1,193 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import java.lang.reflect.Field;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.twitter.hpack.HpackUtil.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+
+public class HeaderFieldIndexTest {
+
+  // same String.hashCode, so same slot in the index: "AaAa", "AaBB", "BBAa", "BBBB"
+  private static final String[] COLLIDING = { "AaAa", "AaBB", "BBAa", "BBBB" };
+
+  private HeaderField[] entries;
+  private HeaderFieldIndex.Entries bySequence;
+
+  @Before
+  public void setUp() {
+    entries = new HeaderField[100000];
+    bySequence = new HeaderFieldIndex.Entries() {
+      @Override
+      public HeaderField get(int sequence) {
+        return entries[sequence];
+      }
+    };
+  }
+
+  private static byte[] getBytes(String s) {
+    return s.getBytes(ISO_8859_1);
+  }
+
+  private void put(HeaderFieldIndex index, int sequence, String name, String value) {
+    entries[sequence] = new HeaderField(getBytes(name), getBytes(value));
+    index.put(entries[sequence], sequence, bySequence);
+  }
+
+  private int find(HeaderFieldIndex index, String name, String value) {
+    return index.find(getBytes(name), getBytes(value), bySequence);
+  }
+
+  @Test
+  public void testDuplicateNames() {
+    HeaderFieldIndex nameIndex = new HeaderFieldIndex(false);
+    HeaderFieldIndex nameValueIndex = new HeaderFieldIndex(true);
+    for (HeaderFieldIndex index : new HeaderFieldIndex[] { nameIndex, nameValueIndex }) {
+      put(index, 1, "accept", "a");
+      put(index, 2, "accept", "b");
+    }
+    assertEquals(1, nameIndex.size());
+    assertEquals(2, find(nameIndex, "accept", "zzz"));
+    assertEquals(2, nameValueIndex.size());
+    assertEquals(1, find(nameValueIndex, "accept", "a"));
+    assertEquals(2, find(nameValueIndex, "accept", "b"));
+    assertEquals(0, find(nameValueIndex, "accept", "c"));
+  }
+
+  @Test
+  public void testRemoveOnlyMatchingSequence() {
+    HeaderFieldIndex index = new HeaderFieldIndex(false);
+    put(index, 1, "accept", "a");
+    put(index, 2, "accept", "b");
+
+    // sequence 1 was superseded by 2: removing it must keep the name
+    index.remove(entries[1], 1);
+    assertEquals(1, index.size());
+    assertEquals(2, find(index, "accept", ""));
+
+    index.remove(entries[2], 2);
+    assertEquals(0, index.size());
+    assertEquals(0, find(index, "accept", ""));
+
+    // removing an absent key is a no-op
+    index.remove(entries[2], 2);
+    assertEquals(0, index.size());
+  }
+
+  @Test
+  public void testCollisions() {
+    HeaderFieldIndex index = new HeaderFieldIndex(false);
+    for (int i = 0; i < COLLIDING.length; i++) {
+      put(index, i + 1, COLLIDING[i], "");
+    }
+    for (int i = 0; i < COLLIDING.length; i++) {
+      assertEquals(i + 1, find(index, COLLIDING[i], ""));
+    }
+
+    // backward-shift delete from the middle of the probe sequence
+    index.remove(entries[2], 2);
+    assertEquals(3, index.size());
+    assertEquals(1, find(index, "AaAa", ""));
+    assertEquals(0, find(index, "AaBB", ""));
+    assertEquals(3, find(index, "BBAa", ""));
+    assertEquals(4, find(index, "BBBB", ""));
+
+    index.remove(entries[1], 1);
+    assertEquals(3, find(index, "BBAa", ""));
+    assertEquals(4, find(index, "BBBB", ""));
+
+    put(index, 5, "AaBB", "");
+    assertEquals(5, find(index, "AaBB", ""));
+    assertEquals(3, index.size());
+  }
+
+  @Test
+  public void testTrimTo() {
+    HeaderFieldIndex index = new HeaderFieldIndex(true);
+    for (int sequence = 1; sequence <= 40; sequence++) {
+      put(index, sequence, "name" + sequence, "value");
+    }
+    for (int sequence = 1; sequence <= 37; sequence++) {
+      index.remove(entries[sequence], sequence);
+    }
+    index.trimTo(3);
+    assertEquals(3, index.size());
+    for (int sequence = 38; sequence <= 40; sequence++) {
+      assertEquals(sequence, find(index, "name" + sequence, "value"));
+    }
+    assertEquals(0, find(index, "name1", "value"));
+  }
+
+  /**
+   * Random puts and removes, oldest first as in the dynamic table, against a
+   * HashMap. Few slots and many keys, so most probes collide.
+   */
+  @Test
+  public void testMatchesHashMap() {
+    Random random = new Random(3);
+    HeaderFieldIndex index = new HeaderFieldIndex(false);
+    Map<String, Integer> expected = new HashMap<String, Integer>();
+    int oldest = 1;
+    for (int sequence = 1; sequence < entries.length; sequence++) {
+      String name = "n" + random.nextInt(64);
+      put(index, sequence, name, "");
+      expected.put(name, sequence);
+      while (sequence - oldest >= 1 + random.nextInt(40)) {
+        String oldestName = new String(entries[oldest].name, ISO_8859_1);
+        index.remove(entries[oldest], oldest);
+        if (expected.get(oldestName) == oldest) {
+          expected.remove(oldestName);
+        }
+        oldest++;
+      }
+      if (sequence % 97 == 0) {
+        index.trimTo(sequence - oldest + 1);
+      }
+      assertEquals(expected.size(), index.size());
+      String probe = "n" + random.nextInt(64);
+      Integer expectedSequence = expected.get(probe);
+      assertEquals(expectedSequence == null ? 0 : expectedSequence.intValue(), find(index, probe, ""));
+    }
+  }
+
+  @Test
+  public void testRenumber() throws Exception {
+    DynamicTable table = new DynamicTable(4096);
+    Field insertCount = DynamicTable.class.getDeclaredField("insertCount");
+    insertCount.setAccessible(true);
+    insertCount.setInt(table, Integer.MAX_VALUE - 2);
+
+    for (int i = 0; i < 5; i++) {
+      table.add(new HeaderField(getBytes("name" + (i % 3)), getBytes("value" + i)));
+    }
+    // the second add reaches Integer.MAX_VALUE, so the third renumbers from 1
+    assertEquals(5, (int) insertCount.getInt(table));
+    assertEquals(5, table.length());
+    assertEquals(1, table.getIndex(getBytes("name1")));
+    assertEquals(2, table.getIndex(getBytes("name0")));
+    assertEquals(3, table.getIndex(getBytes("name2")));
+    for (int i = 0; i < 5; i++) {
+      assertEquals(5 - i, table.getIndex(getBytes("name" + (i % 3)), getBytes("value" + i)));
+    }
+  }
+}
@@ -18,6 +18,8 @@ package com.twitter.hpack;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.Arrays;
 import java.util.Random;
 
@@ -56,7 +58,7 @@ public class HuffmanTest {
     Huffman.DECODER.decode(buf);
   }
 
-  @Test//(expected = IOException.class) TODO(jpinner) fix me
+  @Test(expected = IOException.class)
   public void testDecodeExtraPadding() throws IOException {
     byte[] buf = new byte[2];
     buf[0] = 0x0F; // '1', 'EOS'
@@ -64,6 +66,107 @@ public class HuffmanTest {
     Huffman.DECODER.decode(buf);
   }
 
+  @Test
+  public void testTableDrivenHuffman() throws IOException {
+    HuffmanDecoder decoder = newTableDrivenDecoder();
+
+    String s = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    for (int i = 0; i < s.length(); i++) {
+      roundTrip(Huffman.ENCODER, decoder, s.substring(0, i));
+    }
+
+    Random random = new Random(123456789L);
+    byte[] buf = new byte[4096];
+    random.nextBytes(buf);
+    roundTrip(Huffman.ENCODER, decoder, buf);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTableDrivenDecodeEOS() throws IOException {
+    byte[] buf = new byte[4];
+    for (int i = 0; i < 4; i++) {
+      buf[i] = (byte) 0xFF;
+    }
+    newTableDrivenDecoder().decode(buf);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTableDrivenDecodeIllegalPadding() throws IOException {
+    byte[] buf = new byte[1];
+    buf[0] = 0x00; // '0', invalid padding
+    newTableDrivenDecoder().decode(buf);
+  }
+
+  @Test(expected = IOException.class)
+  public void testTableDrivenDecodeExtraPadding() throws IOException {
+    byte[] buf = new byte[2];
+    buf[0] = 0x0F; // '1', 'EOS'
+    buf[1] = (byte) 0xFF; // 'EOS'
+    newTableDrivenDecoder().decode(buf);
+  }
+
+  @Test
+  public void testEncodeIntoArrayAndBuffer() throws IOException {
+    Random random = new Random(123456789L);
+    for (int i = 0; i < 256; i++) {
+      byte[] data = new byte[random.nextInt(128)];
+      random.nextBytes(data);
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      Huffman.ENCODER.encode(baos, data);
+      byte[] expected = baos.toByteArray();
+      int length = Huffman.ENCODER.getEncodedLength(data);
+
+      byte[] dst = new byte[length + 3];
+      Huffman.ENCODER.encode(dst, 3, data, length);
+      Assert.assertArrayEquals(expected, Arrays.copyOfRange(dst, 3, dst.length));
+
+      ByteBuffer direct = ByteBuffer.allocateDirect(length).order(ByteOrder.LITTLE_ENDIAN);
+      Huffman.ENCODER.encode(direct, data, length);
+      Assert.assertFalse(direct.hasRemaining());
+      byte[] actual = new byte[length];
+      direct.flip();
+      direct.get(actual);
+      Assert.assertArrayEquals(expected, actual);
+    }
+  }
+
+  @Test
+  public void testEncodeIfShorter() throws IOException {
+    byte[] text = "custom-value-with-plenty-of-lowercase-ascii".getBytes();
+    int length = Huffman.ENCODER.getEncodedLength(text);
+    byte[] dst = new byte[text.length];
+    Assert.assertEquals(length, Huffman.ENCODER.encodeIfShorter(dst, 0, text, text.length));
+    Assert.assertArrayEquals(text, Huffman.DECODER.decode(Arrays.copyOf(dst, length)));
+
+    // a limit equal to the encoded length is no longer "shorter"
+    Assert.assertEquals(-1, Huffman.ENCODER.encodeIfShorter(dst, 0, text, length));
+
+    byte[] binary = new byte[64];
+    Arrays.fill(binary, (byte) 0xFF);
+    Assert.assertEquals(-1, Huffman.ENCODER.encodeIfShorter(new byte[63], 0, binary, binary.length));
+  }
+
+  @Test
+  public void testDecodeIntoArray() throws IOException {
+    byte[] text = "www.example.com/decoded-in-place".getBytes();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    baos.write(new byte[] { 1, 2 });
+    Huffman.ENCODER.encode(baos, text);
+    byte[] src = baos.toByteArray();
+    int encodedLength = src.length - 2;
+
+    for (HuffmanDecoder decoder : new HuffmanDecoder[] { Huffman.DECODER, newTableDrivenDecoder() }) {
+      byte[] dst = new byte[5 + Huffman.getMaxDecodedLength(encodedLength)];
+      int written = decoder.decode(src, 2, encodedLength, dst, 5);
+      Assert.assertEquals(text.length, written);
+      Assert.assertArrayEquals(text, Arrays.copyOfRange(dst, 5, 5 + written));
+    }
+  }
+
+  private static HuffmanDecoder newTableDrivenDecoder() {
+    return new TableDrivenHuffmanDecoder(HpackUtil.HUFFMAN_CODES, HpackUtil.HUFFMAN_CODE_LENGTHS);
+  }
+
   private void roundTrip(String s) throws IOException {
     roundTrip(Huffman.ENCODER, Huffman.DECODER, s);
   }
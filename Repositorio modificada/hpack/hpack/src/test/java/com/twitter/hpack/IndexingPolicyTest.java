@@ -0,0 +1,99 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import org.junit.Test;
+
+import static com.twitter.hpack.HpackUtil.ISO_8859_1;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class IndexingPolicyTest {
+
+  // the smallest sketch: 16 counters per row, aged every 160 additions
+  private static final int SAMPLE_SIZE = 160;
+
+  private static byte[] getBytes(String s) {
+    return s.getBytes(ISO_8859_1);
+  }
+
+  private static boolean shouldIndex(IndexingPolicy policy, String name, String value) {
+    return policy.shouldIndex(getBytes(name), getBytes(value));
+  }
+
+  @Test
+  public void testFrequencyThreshold() {
+    FrequencyIndexingPolicy policy = new FrequencyIndexingPolicy(16, 3);
+    assertFalse(shouldIndex(policy, "etag", "\"abc\""));
+    assertFalse(shouldIndex(policy, "etag", "\"abc\""));
+    assertTrue(shouldIndex(policy, "etag", "\"abc\""));
+    assertTrue(shouldIndex(policy, "etag", "\"abc\""));
+  }
+
+  @Test
+  public void testFrequencyCountSaturates() {
+    FrequencyIndexingPolicy policy = new FrequencyIndexingPolicy(16, 15);
+    for (int i = 1; i < 15; i++) {
+      assertFalse(shouldIndex(policy, "etag", "\"abc\""));
+    }
+    for (int i = 15; i <= SAMPLE_SIZE; i++) {
+      assertTrue(shouldIndex(policy, "etag", "\"abc\""));
+    }
+    // aging halves the saturated count (15) to 7, not the number of calls
+    assertFalse(shouldIndex(policy, "etag", "\"abc\""));
+  }
+
+  @Test
+  public void testFrequencyAging() {
+    FrequencyIndexingPolicy policy = new FrequencyIndexingPolicy(16, 2);
+    assertFalse(shouldIndex(policy, "etag", "\"abc\""));
+    for (int i = 1; i < SAMPLE_SIZE; i++) {
+      shouldIndex(policy, "date", "Mon, 21 Oct 2013 20:13:21 GMT");
+    }
+    // the single sighting of the etag was halved away
+    assertFalse(shouldIndex(policy, "etag", "\"abc\""));
+    assertTrue(shouldIndex(policy, "etag", "\"abc\""));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFrequencyIllegalThreshold() {
+    new FrequencyIndexingPolicy(16, 16);
+  }
+
+  @Test
+  public void testNameList() {
+    IndexingPolicy policy = new NameIndexingPolicy("x-request-id", "set-cookie");
+    assertFalse(shouldIndex(policy, "x-request-id", "1"));
+    assertFalse(shouldIndex(policy, "set-cookie", "sid=1"));
+    assertTrue(shouldIndex(policy, "x-request", "1"));
+    assertTrue(shouldIndex(policy, "x-request-ids", "1"));
+    assertTrue(shouldIndex(policy, "etag", "\"abc\""));
+    assertEquals("NAME(ALWAYS)", policy.getPolicyName());
+  }
+
+  @Test
+  public void testNameListFallback() {
+    IndexingPolicy policy = new NameIndexingPolicy(new FrequencyIndexingPolicy(16, 2),
+        NameIndexingPolicy.HIGH_CARDINALITY_NAMES);
+    for (int i = 0; i < 3; i++) {
+      assertFalse(shouldIndex(policy, "x-request-id", "1"));
+    }
+    assertFalse(shouldIndex(policy, "etag", "\"abc\""));
+    assertTrue(shouldIndex(policy, "etag", "\"abc\""));
+    assertEquals("NAME(FREQUENCY)", policy.getPolicyName());
+  }
+}
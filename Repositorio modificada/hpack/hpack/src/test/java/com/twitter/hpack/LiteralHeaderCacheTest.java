@@ -0,0 +1,113 @@
+/*
+ * Copyright 2014 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+import static com.twitter.hpack.HpackUtil.ISO_8859_1;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LiteralHeaderCacheTest {
+
+  private static byte[] getBytes(String s) {
+    return s.getBytes(ISO_8859_1);
+  }
+
+  /**
+   * Encodes a block of non-indexed literals: a static name, a new name and a
+   * sensitive header, with the given request number in one of the values.
+   */
+  private static byte[] encode(Encoder encoder, int request) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    encoder.encodeHeader(out, getBytes("content-type"), getBytes("text/html; charset=utf-8"), false);
+    encoder.encodeHeader(out, getBytes("x-custom"), getBytes("custom-value"), false);
+    encoder.encodeHeader(out, getBytes("authorization"), getBytes("Bearer 0123456789"), true);
+    encoder.encodeHeader(out, getBytes("x-request-id"), getBytes("request-" + request), false);
+    return out.toByteArray();
+  }
+
+  private static LiteralHeaderCache filledCache(boolean forceHuffmanOn, boolean forceHuffmanOff)
+      throws IOException {
+    LiteralHeaderCache cache = new LiteralHeaderCache(4096);
+    encode(new Encoder(4096, false, forceHuffmanOn, forceHuffmanOff, cache), 0);
+    return cache;
+  }
+
+  @Test
+  public void testReadOnlyCopyNeverGrows() throws IOException {
+    LiteralHeaderCache cache = filledCache(false, false);
+    assertEquals(4, cache.length());
+
+    LiteralHeaderCache copy = cache.readOnlyCopy();
+    assertTrue(copy.isReadOnly());
+    assertEquals(cache.length(), copy.length());
+    assertEquals(cache.size(), copy.size());
+
+    Encoder encoder = new Encoder(4096, false, false, false, copy);
+    for (int request = 1; request < 10; request++) {
+      encode(encoder, request);
+    }
+    assertEquals(4, copy.length());
+    assertEquals(cache.size(), copy.size());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testReadOnlyCopyCannotBeCleared() throws IOException {
+    filledCache(false, false).readOnlyCopy().clear();
+  }
+
+  @Test
+  public void testSharedReadOnlyCopy() throws IOException {
+    LiteralHeaderCache copy = filledCache(false, false).readOnlyCopy();
+    Encoder first = new Encoder(4096, false, false, false, copy);
+    Encoder second = new Encoder(4096, false, false, false, copy);
+    Encoder uncached = new Encoder(4096, false, false, false);
+    for (int request = 0; request < 10; request++) {
+      byte[] expected = encode(uncached, request);
+      assertArrayEquals(expected, encode(first, request));
+      assertArrayEquals(expected, encode(second, request));
+    }
+  }
+
+  @Test
+  public void testBindSameHuffmanConfiguration() throws IOException {
+    // forceHuffmanOn wins over forceHuffmanOff, so both give the same bytes
+    LiteralHeaderCache copy = filledCache(true, false).readOnlyCopy();
+    new Encoder(4096, false, true, true, copy);
+
+    // an empty copy was never bound and takes any configuration
+    LiteralHeaderCache empty = new LiteralHeaderCache(4096).readOnlyCopy();
+    new Encoder(4096, false, true, false, empty);
+    new Encoder(4096, false, false, true, empty);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBindDifferentHuffmanConfiguration() throws IOException {
+    LiteralHeaderCache copy = filledCache(false, false).readOnlyCopy();
+    new Encoder(4096, false, true, false, copy);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testBindMutableCacheToDifferentHuffmanConfiguration() throws IOException {
+    LiteralHeaderCache cache = filledCache(true, false);
+    new Encoder(4096, false, false, true, cache);
+  }
+}
@@ -63,11 +63,24 @@ final class TestCase {
   }
 
   void testCompress() throws Exception {
-    Encoder encoder = createEncoder();
+    testCompress(createEncoder(null));
+    // the literal cache must not change a single byte of the output
+    testCompress(createEncoder(new LiteralHeaderCache(4096)));
+    // neither must encoding each block through a compiled template
+    testCompress(createEncoder(null), true);
+  }
+
+  private void testCompress(Encoder encoder) throws Exception {
+    testCompress(encoder, false);
+  }
+
+  private void testCompress(Encoder encoder, boolean useTemplate) throws Exception {
 
     for (HeaderBlock headerBlock : headerBlocks) {
 
-      byte[] actual = encode(encoder, headerBlock.getHeaders(), headerBlock.getMaxHeaderTableSize(), sensitiveHeaders);
+      byte[] actual = useTemplate
+          ? encodeTemplate(encoder, headerBlock.getHeaders(), headerBlock.getMaxHeaderTableSize(), sensitiveHeaders)
+          : encode(encoder, headerBlock.getHeaders(), headerBlock.getMaxHeaderTableSize(), sensitiveHeaders);
 
       if (!Arrays.equals(actual, headerBlock.encodedBytes)) {
         throw new AssertionError(
@@ -135,13 +148,13 @@ final class TestCase {
     }
   }
 
-  private Encoder createEncoder() {
+  private Encoder createEncoder(LiteralHeaderCache literalCache) {
     int maxHeaderTableSize = this.maxHeaderTableSize;
     if (maxHeaderTableSize == -1) {
       maxHeaderTableSize = Integer.MAX_VALUE;
     }
 
-    return new Encoder(maxHeaderTableSize, useIndexing, forceHuffmanOn, forceHuffmanOff);
+    return new Encoder(maxHeaderTableSize, useIndexing, forceHuffmanOn, forceHuffmanOff, literalCache);
   }
 
   private Decoder createDecoder() {
@@ -168,6 +181,26 @@ final class TestCase {
     return baos.toByteArray();
   }
 
+  private static byte[] encodeTemplate(Encoder encoder, List<HeaderField> headers, int maxHeaderTableSize,
+      boolean sensitive) throws IOException {
+    List<EncoderHeader> encoderHeaders = new ArrayList<EncoderHeader>();
+    for (HeaderField e: headers) {
+      encoderHeaders.add(new EncoderHeader(e.name, e.value, sensitive));
+    }
+    // compiled before the table size update, so the template must recompile itself
+    HeaderBlockTemplate template = encoder.compile(encoderHeaders);
+
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+
+    if (maxHeaderTableSize != -1) {
+      encoder.setMaxHeaderTableSize(baos, maxHeaderTableSize);
+    }
+
+    encoder.encodeHeaders(baos, template);
+
+    return baos.toByteArray();
+  }
+
   private static List<HeaderField> decode(Decoder decoder, byte[] expected) throws IOException {
     List<HeaderField> headers = new ArrayList<HeaderField>();
     TestHeaderListener listener = new TestHeaderListener(headers);
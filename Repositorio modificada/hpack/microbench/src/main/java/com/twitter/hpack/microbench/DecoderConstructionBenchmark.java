@@ -0,0 +1,65 @@
+/*
+ * Copyright 2015 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack.microbench;
+
+import com.twitter.hpack.Decoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+
+/**
+ * Cost of setting up a decoder per connection: constructing a new one versus
+ * resetting a pooled one. With the GC profiler, gc.alloc.rate.norm is the
+ * per-connection footprint.
+ */
+public class DecoderConstructionBenchmark extends AbstractMicrobenchmarkBase {
+
+    @Param ({"4096", "65536"})
+    public int maxTableSize;
+
+    @Param ({"8192"})
+    public int maxHeaderSize;
+
+    private Decoder pooled;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        pooled = new Decoder(maxHeaderSize, maxTableSize);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public Decoder construct() {
+        return new Decoder(maxHeaderSize, maxTableSize);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public Decoder reset() {
+        pooled.reset();
+        return pooled;
+    }
+
+    @Override
+    protected ChainedOptionsBuilder newOptionsBuilder() throws Exception {
+        return super.newOptionsBuilder().addProfiler(GCProfiler.class);
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2015 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack.microbench;
+
+import com.twitter.hpack.Encoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Measures encoder dynamic table lookups, inserts and evictions as the table grows.
+ * The encoder lives for the whole trial so the table stays full and churns.
+ */
+public class DynamicTableBenchmark extends AbstractMicrobenchmarkBase {
+
+    private static final int HEADERS_PER_BLOCK = 20;
+    private static final int HOT_HEADERS = 64;
+
+    @Param({"4096", "16384", "65536", "262144"})
+    public int maxTableSize;
+
+    @Param({"4096"})
+    public int distinctHeaders;
+
+    private List<Header> headers;
+    private Encoder encoder;
+    private ByteArrayOutputStream outputStream;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        headers = Header.createHeaders(distinctHeaders, 10, 20, true);
+        encoder = new Encoder(maxTableSize);
+        outputStream = new ByteArrayOutputStream(HEADERS_PER_BLOCK * 64);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void encode(Blackhole bh) throws IOException {
+        outputStream.reset();
+        for (int i = 0; i < HEADERS_PER_BLOCK; ++i) {
+            // Alternate a small hot set (table hits) with a cold sweep (misses and evictions)
+            Header header = (i & 1) == 0
+                    ? headers.get(i % HOT_HEADERS)
+                    : headers.get(HOT_HEADERS + next++ % (headers.size() - HOT_HEADERS));
+            encoder.encodeHeader(outputStream, header.name, header.value, false);
+        }
+        bh.consume(outputStream);
+    }
+}
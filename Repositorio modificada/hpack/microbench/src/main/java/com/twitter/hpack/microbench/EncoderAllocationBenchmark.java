@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack.microbench;
+
+import com.twitter.hpack.Encoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Steady-state allocation of literal string encoding. Indexing is off so the
+ * dynamic table never grows, and the output buffer is reused, so the GC
+ * profiler (-prof gc) should report no bytes allocated per operation.
+ */
+public class EncoderAllocationBenchmark extends AbstractMicrobenchmarkBase {
+
+    @Param
+    public HeadersSize size;
+
+    @Param({"true", "false"})
+    public boolean sensitive;
+
+    @Param({"true", "false"})
+    public boolean limitToAscii;
+
+    private List<Header> headers;
+    private Encoder encoder;
+    private ByteBuffer buffer;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        headers = headers(size, limitToAscii);
+        encoder = new Encoder(4096, false, false, false);
+        int maxLength = 0;
+        for (int i = 0; i < headers.size(); ++i) {
+            Header header = headers.get(i);
+            maxLength += encoder.getMaxEncodedLength(header.name, header.value);
+        }
+        buffer = ByteBuffer.allocateDirect(maxLength);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void encode(Blackhole bh) throws IOException {
+        buffer.clear();
+        for (int i = 0; i < headers.size(); ++i) {
+            Header header = headers.get(i);
+            encoder.encodeHeader(buffer, header.name, header.value, sensitive);
+        }
+        bh.consume(buffer);
+    }
+
+    @Override
+    protected ChainedOptionsBuilder newOptionsBuilder() throws Exception {
+        return super.newOptionsBuilder().addProfiler(GCProfiler.class);
+    }
+}
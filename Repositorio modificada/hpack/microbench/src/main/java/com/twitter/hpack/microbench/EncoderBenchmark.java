@@ -16,6 +16,7 @@
 package com.twitter.hpack.microbench;
 
 import com.twitter.hpack.Encoder;
+import com.twitter.hpack.EncoderHeader;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Level;
@@ -26,6 +27,7 @@ import org.openjdk.jmh.infra.Blackhole;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 public class EncoderBenchmark extends AbstractMicrobenchmarkBase {
@@ -46,12 +48,18 @@ public class EncoderBenchmark extends AbstractMicrobenchmarkBase {
     public boolean limitToAscii;
 
     private List<Header> headers;
+    private List<EncoderHeader> block;
     private ByteArrayOutputStream outputStream;
 
     @Setup(Level.Trial)
     public void setup() {
         headers = headers(size, limitToAscii);
         outputStream = size.newOutputStream();
+        block = new ArrayList<EncoderHeader>(headers.size());
+        for (int i = 0; i < headers.size(); ++i) {
+            Header header = duplicates ? headers.get(0) : headers.get(i);
+            block.add(new EncoderHeader(header.name, header.value, sensitive));
+        }
     }
 
     @Benchmark
@@ -73,4 +81,13 @@ public class EncoderBenchmark extends AbstractMicrobenchmarkBase {
         }
         bh.consume(outputStream);
     }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void encodeBlock(Blackhole bh) throws IOException {
+        Encoder encoder = new Encoder(maxTableSize);
+        outputStream.reset();
+        encoder.encodeHeaders(outputStream, block);
+        bh.consume(outputStream);
+    }
 }
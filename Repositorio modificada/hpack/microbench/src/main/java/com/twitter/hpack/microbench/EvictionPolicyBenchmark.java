@@ -0,0 +1,100 @@
+/*
+ * Copyright 2015 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack.microbench;
+
+import com.twitter.hpack.Decoder;
+import com.twitter.hpack.Encoder;
+import com.twitter.hpack.HeaderListener;
+import com.twitter.hpack.LRUEvictionPolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * decodeChurn decodes blocks that only insert new entries into a full
+ * dynamic table, so every header evicts one or more entries of varying size.
+ * RFC 7541 fixes which entries are evicted, so the table never consults its
+ * eviction policy and there is no FIFO/LRU variant to compare.
+ * {@link LRUEvictionPolicy} is bookkeeping only; lruAccess measures that
+ * bookkeeping, which should not grow with the table.
+ */
+public class EvictionPolicyBenchmark extends AbstractMicrobenchmarkBase {
+
+    private static final int BLOCKS = 256;
+    private static final int HEADERS_PER_BLOCK = 16;
+
+    @Param({"4096", "65536"})
+    public int maxTableSize;
+
+    private final ByteBuffer[] blocks = new ByteBuffer[BLOCKS];
+    private Decoder decoder;
+    private LRUEvictionPolicy lru;
+    private int trackedEntries;
+    private int next;
+
+    private static final HeaderListener IGNORE = new HeaderListener() {
+        @Override
+        public void addHeader(byte[] name, byte[] value, boolean sensitive) {
+        }
+    };
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        // Unique names: every header is a literal with incremental indexing
+        // whose encoding does not depend on the table, so blocks can be replayed.
+        Random random = new Random(24);
+        Encoder encoder = new Encoder(maxTableSize, true, false, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < BLOCKS; i++) {
+            out.reset();
+            for (int j = 0; j < HEADERS_PER_BLOCK; j++) {
+                byte[] value = new byte[8 + random.nextInt(200)];
+                for (int k = 0; k < value.length; k++) {
+                    value[k] = (byte) ('a' + random.nextInt(26));
+                }
+                encoder.encodeHeader(out, ("x-churn-" + (i * HEADERS_PER_BLOCK + j)).getBytes(), value, false);
+            }
+            blocks[i] = ByteBuffer.wrap(out.toByteArray());
+        }
+
+        decoder = new Decoder(8192, maxTableSize);
+        lru = new LRUEvictionPolicy();
+        trackedEntries = maxTableSize / 32;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public boolean decodeChurn() throws IOException {
+        ByteBuffer block = blocks[next++ & (BLOCKS - 1)].duplicate();
+        decoder.decode(block, IGNORE);
+        return decoder.endHeaderBlock();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public Integer lruAccess() {
+        lru.recordAccess(next++ % trackedEntries);
+        return lru.getLRUEntry();
+    }
+}
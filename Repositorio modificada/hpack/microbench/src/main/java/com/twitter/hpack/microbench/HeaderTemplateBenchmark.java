@@ -0,0 +1,86 @@
+/*
+ * Copyright 2015 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack.microbench;
+
+import com.twitter.hpack.Encoder;
+import com.twitter.hpack.EncoderHeader;
+import com.twitter.hpack.HeaderBlockTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Encodes the fixed part of a typical response header set, either header by
+ * header or through a template compiled once with {@link Encoder#compile}.
+ * With indexing on, the non-static headers go through the dynamic table and
+ * stay variable; with indexing off the whole template is a single copy.
+ */
+public class HeaderTemplateBenchmark extends AbstractMicrobenchmarkBase {
+
+    @Param({"4096"})
+    public int maxTableSize;
+
+    @Param({"true", "false"})
+    public boolean useIndexing;
+
+    @Param({"true", "false"})
+    public boolean sensitive;
+
+    private List<EncoderHeader> block;
+    private Encoder encoder;
+    private HeaderBlockTemplate template;
+    private ByteBuffer out;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        block = new ArrayList<EncoderHeader>();
+        block.add(new EncoderHeader(":status", "200", false));
+        block.add(new EncoderHeader("content-type", "text/html; charset=utf-8", sensitive));
+        block.add(new EncoderHeader("server", "nginx", sensitive));
+        block.add(new EncoderHeader("vary", "accept-encoding", false));
+        block.add(new EncoderHeader("cache-control", "private, max-age=0", sensitive));
+        block.add(new EncoderHeader("strict-transport-security", "max-age=31536000; includeSubDomains", sensitive));
+        block.add(new EncoderHeader("x-content-type-options", "nosniff", sensitive));
+        encoder = new Encoder(maxTableSize, useIndexing, false, false);
+        template = encoder.compile(block);
+        out = ByteBuffer.allocate(encoder.getMaxEncodedLength(block));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void encodeList(Blackhole bh) throws IOException {
+        out.clear();
+        encoder.encodeHeaders(out, block);
+        bh.consume(out);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void encodeTemplate(Blackhole bh) throws IOException {
+        out.clear();
+        encoder.encodeHeaders(out, template);
+        bh.consume(out);
+    }
+}
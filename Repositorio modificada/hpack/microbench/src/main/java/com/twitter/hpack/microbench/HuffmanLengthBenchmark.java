@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack.microbench;
+
+import com.twitter.hpack.Huffman;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+
+/**
+ * Cost of sizing literal values for Huffman encoding: the length-only scan,
+ * the two-pass length-then-encode path and the single-pass encodeIfShorter
+ * path used by default by StringEncoder.
+ */
+public class HuffmanLengthBenchmark extends AbstractMicrobenchmarkBase {
+
+    @Param
+    public HeadersSize size;
+
+    @Param({"true", "false"})
+    public boolean limitToAscii;
+
+    private byte[][] values;
+    private byte[] scratch;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Header> headers = headers(size, limitToAscii);
+        values = new byte[headers.size()][];
+        int maxLength = 0;
+        for (int i = 0; i < headers.size(); ++i) {
+            values[i] = headers.get(i).value;
+            int length = Math.max(values[i].length, Huffman.ENCODER.getEncodedLength(values[i]));
+            maxLength = Math.max(maxLength, length);
+        }
+        scratch = new byte[maxLength];
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void encodedLength(Blackhole bh) {
+        for (int i = 0; i < values.length; ++i) {
+            bh.consume(Huffman.ENCODER.getEncodedLength(values[i]));
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void lengthThenEncode(Blackhole bh) {
+        for (int i = 0; i < values.length; ++i) {
+            byte[] value = values[i];
+            int length = Huffman.ENCODER.getEncodedLength(value);
+            Huffman.ENCODER.encode(scratch, 0, value, length);
+            bh.consume(length);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void encodeIfShorter(Blackhole bh) {
+        for (int i = 0; i < values.length; ++i) {
+            byte[] value = values[i];
+            bh.consume(Huffman.ENCODER.encodeIfShorter(scratch, 0, value, value.length));
+        }
+    }
+}
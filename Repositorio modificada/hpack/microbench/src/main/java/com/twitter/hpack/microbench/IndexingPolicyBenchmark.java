@@ -0,0 +1,183 @@
+/*
+ * Copyright 2015 Twitter, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.twitter.hpack.microbench;
+
+import com.twitter.hpack.DefaultIndexingPolicy;
+import com.twitter.hpack.Encoder;
+import com.twitter.hpack.FrequencyIndexingPolicy;
+import com.twitter.hpack.IndexingPolicy;
+import com.twitter.hpack.NameIndexingPolicy;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * Encodes the responses of a long-lived connection that keeps requesting the
+ * same few resources. Most headers repeat, {@code date} changes once per
+ * second, and {@code x-request-id} and {@code set-cookie} change on every
+ * response; when indexed, those evict the reusable entries. Besides
+ * throughput, JMH reports the compressed bytes per response as a secondary
+ * result (see {@link Compression}), which is the number the admission policy
+ * is meant to improve.
+ */
+public class IndexingPolicyBenchmark extends AbstractMicrobenchmarkBase {
+
+    public enum Policy {
+        ALWAYS, NAMES, FREQUENCY;
+
+        IndexingPolicy newPolicy() {
+            switch (this) {
+                case NAMES:
+                    return new NameIndexingPolicy(NameIndexingPolicy.HIGH_CARDINALITY_NAMES);
+                case FREQUENCY:
+                    return new FrequencyIndexingPolicy();
+                default:
+                    return new DefaultIndexingPolicy();
+            }
+        }
+    }
+
+    /**
+     * Secondary results, reset on every iteration.
+     */
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Compression {
+        public long responses;
+        public long compressedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            responses = 0;
+            compressedBytes = 0;
+        }
+
+        public long bytesPerResponse() {
+            return compressedBytes / Math.max(1, responses);
+        }
+    }
+
+    private static final int RESOURCES = 32;
+    private static final int RESPONSES_PER_SECOND = 50;
+
+    private static final byte[] STATUS = bytes(":status");
+    private static final byte[] CONTENT_TYPE = bytes("content-type");
+    private static final byte[] CONTENT_LENGTH = bytes("content-length");
+    private static final byte[] ETAG = bytes("etag");
+    private static final byte[] LAST_MODIFIED = bytes("last-modified");
+    private static final byte[] DATE = bytes("date");
+    private static final byte[] SERVER = bytes("server");
+    private static final byte[] CACHE_CONTROL = bytes("cache-control");
+    private static final byte[] VARY = bytes("vary");
+    private static final byte[] STS = bytes("strict-transport-security");
+    private static final byte[] REQUEST_ID = bytes("x-request-id");
+    private static final byte[] SET_COOKIE = bytes("set-cookie");
+
+    private static final byte[][] STATUSES = {bytes("200"), bytes("304")};
+    private static final byte[][] CONTENT_TYPES = {
+        bytes("application/json"), bytes("text/html; charset=utf-8"), bytes("image/png")};
+    private static final byte[] SERVER_VALUE = bytes("envoy");
+    private static final byte[] CACHE_CONTROL_VALUE = bytes("private, max-age=0, must-revalidate");
+    private static final byte[] VARY_VALUE = bytes("accept-encoding, origin");
+    private static final byte[] STS_VALUE = bytes("max-age=31536000; includeSubDomains; preload");
+
+    @Param({"4096"})
+    public int maxTableSize;
+
+    @Param
+    public Policy policy;
+
+    private final byte[][] contentLengths = new byte[RESOURCES][];
+    private final byte[][] etags = new byte[RESOURCES][];
+    private final byte[][] lastModified = new byte[RESOURCES][];
+    private final int[] contentTypes = new int[RESOURCES];
+
+    private Random random;
+    private Encoder encoder;
+    private ByteBuffer out;
+    private long responses;
+
+    @Setup(Level.Trial)
+    public void setupCorpus() {
+        Random random = new Random(42);
+        for (int i = 0; i < RESOURCES; i++) {
+            contentLengths[i] = bytes(Integer.toString(200 + random.nextInt(100000)));
+            etags[i] = bytes("\"" + Long.toHexString(random.nextLong()) + "\"");
+            lastModified[i] = bytes("Mon, 0" + (1 + random.nextInt(9)) + " Jun 2015 1" + random.nextInt(10)
+                + ":2" + random.nextInt(10) + ":00 GMT");
+            contentTypes[i] = random.nextInt(CONTENT_TYPES.length);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        // Same sequence of responses in every iteration
+        random = new Random(7);
+        encoder = new Encoder(maxTableSize, true, false, false, null, policy.newPolicy());
+        out = ByteBuffer.allocate(4096);
+        responses = 0;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public ByteBuffer encodeResponse(Compression compression) throws IOException {
+        // A few resources get most of the requests
+        int resource = Math.min(RESOURCES - 1, (int) Math.abs(random.nextGaussian() * RESOURCES / 4));
+        boolean notModified = random.nextInt(4) == 0;
+        long n = responses++;
+
+        out.clear();
+        encoder.encodeHeader(out, STATUS, STATUSES[notModified ? 1 : 0], false);
+        encoder.encodeHeader(out, DATE, bytes("Tue, 16 Jun 2015 " + time(n / RESPONSES_PER_SECOND) + " GMT"), false);
+        encoder.encodeHeader(out, SERVER, SERVER_VALUE, false);
+        encoder.encodeHeader(out, ETAG, etags[resource], false);
+        encoder.encodeHeader(out, CACHE_CONTROL, CACHE_CONTROL_VALUE, false);
+        encoder.encodeHeader(out, VARY, VARY_VALUE, false);
+        encoder.encodeHeader(out, STS, STS_VALUE, false);
+        encoder.encodeHeader(out, REQUEST_ID, bytes(Long.toHexString(0x5eed00000000L + n)), false);
+        if (!notModified) {
+            encoder.encodeHeader(out, CONTENT_TYPE, CONTENT_TYPES[contentTypes[resource]], false);
+            encoder.encodeHeader(out, CONTENT_LENGTH, contentLengths[resource], false);
+            encoder.encodeHeader(out, LAST_MODIFIED, lastModified[resource], false);
+        }
+        if (random.nextInt(10) == 0) {
+            encoder.encodeHeader(out, SET_COOKIE, bytes("sid=" + Long.toHexString(random.nextLong())
+                + "; Path=/; Secure; HttpOnly"), false);
+        }
+        compression.responses++;
+        compression.compressedBytes += out.position();
+        return out;
+    }
+
+    private static String time(long seconds) {
+        long s = seconds % 86400;
+        return String.format("%02d:%02d:%02d", s / 3600, s / 60 % 60, s % 60);
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes();
+    }
+}